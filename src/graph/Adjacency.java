@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.*;
+
+/**
+ * The set of edges incident to a single vertex. Implementations are plugged
+ * into a {@link Vertex} through its constructor.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public interface Adjacency<V, E> extends Set<Edge<V, E>>
+{
+	/**
+	 * @return true if at least one edge in this set leads to {@code opposite}.
+	 */
+	boolean connectsTo(Vertex<V, E> opposite);
+
+	/**
+	 * @return the edges in this set that lead to {@code opposite}; never null.
+	 */
+	List<Edge<V, E>> edgesTo(Vertex<V, E> opposite);
+}
@@ -0,0 +1,425 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.*;
+
+/**
+ * A {@link Graph} that may be read and modified by many threads at once.
+ * <p>
+ * The vertex and edge tables are {@link ConcurrentHashMap}s. Each vertex's
+ * adjacency is guarded by one of a fixed set of read/write locks chosen by
+ * the vertex's hash, so edges between disjoint pairs of vertices are added
+ * and removed in parallel. Queries about a vertex's edges take its lock for
+ * reading and {@link #edgesOf(Vertex)} returns a copy. Listeners are called
+ * while the locks of the changed vertex, or of the changed edge's endpoints,
+ * are held.
+ * <p>
+ * Vertex and edge decorations are not guarded, and {@link #freeze()} must not
+ * run while the graph is being modified. Concurrent graphs are undirected.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public class ConcurrentGraph<V, E> extends Graph<V, E>
+{
+	private final ConcurrentHashMap<Vertex<V, E>, IntrusiveVertex> vertices;
+	private final ConcurrentHashMap<Edge<V, E>, IntrusiveEdge> edges;
+
+	private final ReentrantReadWriteLock[] locks;
+
+	public ConcurrentGraph()
+	{
+		this(16, 16, 4 * Runtime.getRuntime().availableProcessors());
+	}
+
+	public ConcurrentGraph(int expectedVertices, int expectedEdges)
+	{
+		this(expectedVertices, expectedEdges, 4 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param stripes the number of locks guarding vertex adjacency; rounded up
+	 *            to a power of two.
+	 */
+	public ConcurrentGraph(int expectedVertices, int expectedEdges, int stripes)
+	{
+		this(new ConcurrentHashMap<Vertex<V, E>, IntrusiveVertex>(capacityFor(expectedVertices)),
+			new ConcurrentHashMap<Edge<V, E>, IntrusiveEdge>(capacityFor(expectedEdges)), stripes);
+	}
+
+	private ConcurrentGraph(ConcurrentHashMap<Vertex<V, E>, IntrusiveVertex> vertices,
+		ConcurrentHashMap<Edge<V, E>, IntrusiveEdge> edges, int stripes)
+	{
+		super(vertices, edges, null);
+		this.vertices = vertices;
+		this.edges = edges;
+
+		int size = Integer.highestOneBit(Math.max(stripes, 1) * 2 - 1);
+		this.locks = new ReentrantReadWriteLock[size];
+		for (int i = 0; i < size; i++)
+			this.locks[i] = new ReentrantReadWriteLock();
+	}
+
+	private int stripeOf(Vertex<V, E> v)
+	{
+		int h = v.hashCode();
+		h ^= (h >>> 16);
+		return (h * 0x9E3779B9 >>> 16) & (this.locks.length - 1);
+	}
+
+	private Lock readLock(Vertex<V, E> v)
+	{
+		return this.locks[this.stripeOf(v)].readLock();
+	}
+
+	/**
+	 * Takes the write locks of both vertices, lowest stripe first.
+	 */
+	private void lockBoth(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		int s1 = this.stripeOf(v1), s2 = this.stripeOf(v2);
+		this.locks[Math.min(s1, s2)].writeLock().lock();
+		if (s1 != s2)
+			this.locks[Math.max(s1, s2)].writeLock().lock();
+	}
+
+	private void unlockBoth(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		int s1 = this.stripeOf(v1), s2 = this.stripeOf(v2);
+		if (s1 != s2)
+			this.locks[Math.max(s1, s2)].writeLock().unlock();
+		this.locks[Math.min(s1, s2)].writeLock().unlock();
+	}
+
+	public boolean addVertex(Vertex<V, E> v)
+	{
+		if (v == null)
+			throw new NullPointerException("Cannot add a `null` Vertex.");
+
+		if (this.vertices.containsKey(v))
+			return false;
+
+		IntrusiveVertex vertex = this.adopt(v);
+		return this.publish(v, vertex) == vertex;
+	}
+
+	IntrusiveVertex insertVertex(Vertex<V, E> v)
+	{
+		IntrusiveVertex vertex = this.vertices.get(v);
+		if (vertex != null)
+			return vertex;
+
+		vertex = this.adopt(v);
+		return this.publish(v, vertex);
+	}
+
+	/**
+	 * Adds {@code vertex} under its lock unless an equal vertex is already in
+	 * the graph, so that listeners see additions and removals of equal
+	 * vertices in the order they happened.
+	 *
+	 * @return the vertex now in the graph.
+	 */
+	private IntrusiveVertex publish(Vertex<V, E> v, IntrusiveVertex vertex)
+	{
+		IntrusiveVertex existing;
+		Lock lock = this.locks[this.stripeOf(v)].writeLock();
+		lock.lock();
+		try
+		{
+			existing = this.vertices.putIfAbsent(v, vertex);
+			if (existing == null)
+			{
+				this.fireVertexAdded(vertex);
+				return vertex;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		vertex.unbind();
+		return existing;
+	}
+
+	/**
+	 * The tables are concurrent and cannot be swapped for larger ones.
+	 */
+	void ensureCapacity(int vertexCount, int edgeCount)
+	{
+	}
+
+	Edge<V, E> connect(IntrusiveVertex source, IntrusiveVertex target, E e)
+	{
+		IntrusiveEdge newEdge = this.createEdge(source, target, e);
+
+		this.lockBoth(source, target);
+		try
+		{
+			if (source.detached || target.detached)
+				throw new IllegalArgumentException("Vertex was removed from the graph.");
+			if (source.edges.contains(newEdge))
+				return null;
+
+			newEdge.bind(this.edgeDecorations());
+			source.appendEdge(newEdge);
+			if (target != source)
+				target.appendEdge(newEdge);
+
+			this.edges.put(newEdge, newEdge);
+			this.fireEdgeAdded(newEdge);
+		}
+		finally
+		{
+			this.unlockBoth(source, target);
+		}
+
+		return newEdge;
+	}
+
+	@SuppressWarnings("unchecked")
+	boolean disconnect(IntrusiveEdge e)
+	{
+		if (e == null)
+			return false;
+
+		IntrusiveVertex source = (IntrusiveVertex) e.getSourceVertex();
+		IntrusiveVertex target = (IntrusiveVertex) e.getTargetVertex();
+
+		this.lockBoth(source, target);
+		try
+		{
+			if (this.edges.remove(e) == null)
+				return false;
+
+			source.removeEdge(e);
+			target.removeEdge(e);
+			this.fireEdgeRemoved(e);
+			e.unbind();
+		}
+		finally
+		{
+			this.unlockBoth(source, target);
+		}
+
+		return true;
+	}
+
+	public boolean containsEdge(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		if (v1 == null || v2 == null)
+			return false;
+
+		IntrusiveVertex vertex1 = this.vertices.get(v1);
+		if (vertex1 == null)
+			return false;
+
+		Lock lock = this.readLock(vertex1);
+		lock.lock();
+		try
+		{
+			return vertex1.edges.connectsTo(v2);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	public Set<Edge<V, E>> edgesOf(Vertex<V, E> vertex)
+	{
+		IntrusiveVertex v = this.vertices.get(vertex);
+		if (v == null)
+			throw new IllegalArgumentException("vertex not found in graph.");
+
+		Lock lock = this.readLock(v);
+		lock.lock();
+		try
+		{
+			return new EdgeSnapshot<V, E>(v.edges.toArray());
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	public Set<Edge<V, E>> outgoingEdgesOf(Vertex<V, E> vertex)
+	{
+		return this.edgesOf(vertex);
+	}
+
+	public Set<Edge<V, E>> incomingEdgesOf(Vertex<V, E> vertex)
+	{
+		return this.edgesOf(vertex);
+	}
+
+	public Set<Edge<V, E>> getAllEdges(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		if (v1 == null || v2 == null)
+			return null;
+
+		IntrusiveVertex vertex1 = this.vertices.get(v1);
+		if (vertex1 == null || !this.vertices.containsKey(v2))
+			return null;
+
+		Lock lock = this.readLock(vertex1);
+		lock.lock();
+		try
+		{
+			return new EdgeSnapshot<V, E>(vertex1.edges.edgesTo(v2).toArray());
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	public Edge<V, E> getEdge(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		Set<Edge<V, E>> all = this.getAllEdges(v1, v2);
+		return (all == null || all.isEmpty()) ? null : all.iterator().next();
+	}
+
+	public Set<Edge<V, E>> removeAllEdges(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		Set<Edge<V, E>> all = this.getAllEdges(v1, v2);
+		if (all == null)
+			return null;
+
+		HashSet<Edge<V, E>> removed = new HashSet<Edge<V, E>>();
+		Iterator<Edge<V, E>> i = all.iterator();
+		while (i.hasNext())
+		{
+			Edge<V, E> e = i.next();
+			if (this.removeEdge(e))
+				removed.add(e);
+		}
+
+		return removed;
+	}
+
+	/**
+	 * Removes each vertex's edges and then the vertex. The vertex is marked
+	 * under its lock first so that no edge can be added to it afterwards, and
+	 * it leaves the vertex table under the same lock that its removal is
+	 * reported under.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean removeAllVertices(Collection<? extends Vertex<V, E>> vertices)
+	{
+		boolean changed = false;
+		Iterator<? extends Vertex<V, E>> vi = vertices.iterator();
+		while (vi.hasNext())
+		{
+			Vertex<V, E> v = vi.next();
+			IntrusiveVertex vertex = this.vertices.get(v);
+			if (vertex == null)
+				continue;
+
+			Object[] incident;
+			Lock lock = this.locks[this.stripeOf(vertex)].writeLock();
+			lock.lock();
+			try
+			{
+				vertex.detached = true;
+				incident = vertex.edges.toArray();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			for (int i = 0; i < incident.length; i++)
+				this.removeEdge((Edge<V, E>) incident[i]);
+
+			lock.lock();
+			try
+			{
+				// another thread may have removed the vertex and added an equal one
+				if (this.vertices.get(v) != vertex)
+					continue;
+
+				this.vertices.remove(v);
+				changed = true;
+				this.fireVertexRemoved(vertex);
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			vertex.unbind();
+		}
+
+		return changed;
+	}
+
+	/**
+	 * An unmodifiable copy of a set of distinct edges.
+	 */
+	private static class EdgeSnapshot<V, E> extends AbstractSet<Edge<V, E>>
+	{
+		private final Object[] edges;
+
+		EdgeSnapshot(Object[] edges)
+		{
+			this.edges = edges;
+		}
+
+		public boolean contains(Object o)
+		{
+			for (int i = 0; i < this.edges.length; i++)
+				if (this.edges[i].equals(o))
+					return true;
+
+			return false;
+		}
+
+		public int size()
+		{
+			return this.edges.length;
+		}
+
+		public Iterator<Edge<V, E>> iterator()
+		{
+			return new Iterator<Edge<V, E>>()
+			{
+				private int cursor = 0;
+
+				public boolean hasNext()
+				{
+					return this.cursor < edges.length;
+				}
+
+				@SuppressWarnings("unchecked")
+				public Edge<V, E> next()
+				{
+					if (this.cursor >= edges.length)
+						throw new NoSuchElementException();
+					return (Edge<V, E>) edges[this.cursor++];
+				}
+
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.*;
+
+/**
+ * An immutable compressed-sparse-row snapshot of a {@link GraphView}.
+ * <p>
+ * Vertices are numbered densely from {@code 0} to {@code vertexCount() - 1}
+ * and edges from {@code 0} to {@code edgeCount() - 1}. The arcs leaving vertex
+ * {@code v} are the indices {@code firstArc(v)} (inclusive) to
+ * {@code lastArc(v)} (exclusive); every undirected edge contributes one arc to
+ * each of its endpoints, and a self loop contributes a single arc. A directed
+ * edge contributes one arc leaving its source, and {@link #transpose()} holds
+ * the arcs entering each vertex.
+ * <p>
+ * Weights that are {@link Number}s are stored as {@code double}s, any other
+ * weight is treated as {@code 1}.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public class CsrGraph<V, E> implements IntGraph
+{
+	private final Vertex<V, E>[] vertices;
+	private final Edge<V, E>[] edges;
+	private final HashMap<Vertex<V, E>, Integer> vertexIds;
+
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] arcEdges;
+	private final double[] arcWeights;
+
+	private final boolean directed;
+	private volatile CsrGraph<V, E> transposed;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public CsrGraph(GraphView<V, E> g)
+	{
+		this.directed = g.isDirected();
+		this.transposed = this.directed ? null : this;
+
+		int n = g.vertexSet().size();
+		int m = g.edgeSet().size();
+
+		this.vertices = (Vertex<V, E>[]) new Vertex[n];
+		this.edges = (Edge<V, E>[]) new Edge[m];
+		this.vertexIds = new HashMap<Vertex<V, E>, Integer>(n * 4 / 3 + 1);
+
+		int id = 0;
+		Iterator<Vertex<V, E>> vi = g.vertexSet().iterator();
+		while (vi.hasNext())
+		{
+			Vertex<V, E> v = vi.next();
+			this.vertices[id] = v;
+			this.vertexIds.put(v, id++);
+		}
+
+		int[] sources = new int[m];
+		int[] sinks = new int[m];
+		this.offsets = new int[n + 1];
+
+		id = 0;
+		Iterator<Edge<V, E>> ei = g.edgeSet().iterator();
+		while (ei.hasNext())
+		{
+			Edge<V, E> e = ei.next();
+			this.edges[id] = e;
+			sources[id] = this.vertexIds.get(e.getSourceVertex());
+			sinks[id] = this.vertexIds.get(e.getTargetVertex());
+
+			this.offsets[sources[id] + 1]++;
+			if (!this.directed && sources[id] != sinks[id])
+				this.offsets[sinks[id] + 1]++;
+			id++;
+		}
+
+		for (int v = 0; v < n; v++)
+			this.offsets[v + 1] += this.offsets[v];
+
+		int arcs = this.offsets[n];
+		this.targets = new int[arcs];
+		this.arcEdges = new int[arcs];
+		this.arcWeights = new double[arcs];
+
+		int[] next = Arrays.copyOf(this.offsets, n);
+		for (int e = 0; e < m; e++)
+		{
+			double w = weightOf(this.edges[e]);
+			this.setArc(next[sources[e]]++, sinks[e], e, w);
+			if (!this.directed && sources[e] != sinks[e])
+				this.setArc(next[sinks[e]]++, sources[e], e, w);
+		}
+	}
+
+	/**
+	 * Reverses the arcs of a directed {@code forward} graph, sharing its
+	 * vertices and edges.
+	 */
+	private CsrGraph(CsrGraph<V, E> forward)
+	{
+		this.directed = true;
+		this.transposed = forward;
+		this.vertices = forward.vertices;
+		this.edges = forward.edges;
+		this.vertexIds = forward.vertexIds;
+
+		int n = forward.vertexCount();
+		int arcs = forward.arcCount();
+		this.offsets = new int[n + 1];
+		for (int a = 0; a < arcs; a++)
+			this.offsets[forward.targets[a] + 1]++;
+		for (int v = 0; v < n; v++)
+			this.offsets[v + 1] += this.offsets[v];
+
+		this.targets = new int[arcs];
+		this.arcEdges = new int[arcs];
+		this.arcWeights = new double[arcs];
+
+		int[] next = Arrays.copyOf(this.offsets, n);
+		for (int v = 0; v < n; v++)
+			for (int a = forward.offsets[v]; a < forward.offsets[v + 1]; a++)
+				this.setArc(next[forward.targets[a]]++, v, forward.arcEdges[a], forward.arcWeights[a]);
+	}
+
+	private void setArc(int arc, int target, int edge, double weight)
+	{
+		this.targets[arc] = target;
+		this.arcEdges[arc] = edge;
+		this.arcWeights[arc] = weight;
+	}
+
+	private static double weightOf(Edge<?, ?> e)
+	{
+		if (e instanceof PrimitiveWeighted)
+			return ((PrimitiveWeighted) e).doubleWeight();
+
+		Object w = e.getWeight();
+		return (w instanceof Number) ? ((Number) w).doubleValue() : 1;
+	}
+
+	public boolean isDirected()
+	{
+		return this.directed;
+	}
+
+	/**
+	 * Builds the reversed graph on first use for a directed graph.
+	 */
+	public CsrGraph<V, E> transpose()
+	{
+		CsrGraph<V, E> t = this.transposed;
+		if (t == null)
+			this.transposed = t = new CsrGraph<V, E>(this);
+
+		return t;
+	}
+
+	public int vertexCount()
+	{
+		return this.vertices.length;
+	}
+
+	public int edgeCount()
+	{
+		return this.edges.length;
+	}
+
+	public int arcCount()
+	{
+		return this.targets.length;
+	}
+
+	public int degree(int v)
+	{
+		return this.offsets[v + 1] - this.offsets[v];
+	}
+
+	public int firstArc(int v)
+	{
+		return this.offsets[v];
+	}
+
+	public int lastArc(int v)
+	{
+		return this.offsets[v + 1];
+	}
+
+	public int target(int arc)
+	{
+		return this.targets[arc];
+	}
+
+	public int edgeId(int arc)
+	{
+		return this.arcEdges[arc];
+	}
+
+	public double weight(int arc)
+	{
+		return this.arcWeights[arc];
+	}
+
+	/**
+	 * @return the dense id of {@code v}, or {@code -1} if {@code v} was not
+	 *         in the graph when this snapshot was taken.
+	 */
+	public int idOf(Vertex<V, E> v)
+	{
+		Integer id = this.vertexIds.get(v);
+		return (id == null) ? -1 : id;
+	}
+
+	public Vertex<V, E> vertex(int id)
+	{
+		return this.vertices[id];
+	}
+
+	public Edge<V, E> edge(int id)
+	{
+		return this.edges[id];
+	}
+}
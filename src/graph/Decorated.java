@@ -0,0 +1,186 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import graph.decorations.DecorationKey;
+import graph.decorations.DecorationStore;
+import graph.decorations.ReadDecorations;
+
+import java.util.*;
+
+/**
+ * The decorations of a vertex or edge. While the element belongs to a graph
+ * they live in a row of the graph's {@link DecorationStore}; otherwise they
+ * are kept in a map of the element's own, created on first use.
+ * <p>
+ * The vertex value and the edge weight are fields of their own and are
+ * reported as the {@code "value"} and {@code "weight"} decorations.
+ */
+abstract class Decorated implements ReadDecorations
+{
+	private DecorationStore store = null;
+	private int row = -1;
+	private HashMap<Object, Object> local;
+
+	Decorated()
+	{
+		this.local = null;
+	}
+
+	Decorated(HashMap<Object, Object> decorations)
+	{
+		this.local = decorations;
+	}
+
+	/**
+	 * @return the name under which the value or weight field is reported.
+	 */
+	abstract String fieldKey();
+
+	abstract Object fieldValue();
+
+	/**
+	 * @return this element's own decoration map, so a copy can share it, or
+	 *         null if it has none.
+	 */
+	HashMap<Object, Object> sharedDecorations()
+	{
+		return this.local;
+	}
+
+	private HashMap<Object, Object> localDecorations()
+	{
+		if (this.local == null)
+			this.local = new HashMap<Object, Object>();
+
+		return this.local;
+	}
+
+	/**
+	 * Moves this element's decorations into a new row of {@code s}.
+	 */
+	void bind(DecorationStore s)
+	{
+		int newRow = s.allocate();
+		if (this.local != null)
+		{
+			Iterator<Map.Entry<Object, Object>> i = this.local.entrySet().iterator();
+			while (i.hasNext())
+			{
+				Map.Entry<Object, Object> entry = i.next();
+				s.put(newRow, entry.getKey(), entry.getValue());
+			}
+		}
+
+		this.local = null;
+		this.row = newRow;
+		this.store = s;
+	}
+
+	/**
+	 * Moves this element's decorations out of its store, once it has been
+	 * removed from the graph.
+	 */
+	void unbind()
+	{
+		if (this.store == null)
+			return;
+
+		HashMap<Object, Object> kept = this.store.toMap(this.row);
+		this.local = kept.isEmpty() ? null : kept;
+		this.store.free(this.row);
+		this.store = null;
+		this.row = -1;
+	}
+
+	void putDecoration(Object key, Object value)
+	{
+		if (this.store != null)
+			this.store.put(this.row, key, value);
+		else if (value == null)
+		{
+			if (this.local != null)
+				this.local.remove(key);
+		}
+		else
+			this.localDecorations().put(key, value);
+	}
+
+	<T> void putDecoration(DecorationKey<T> key, T value)
+	{
+		if (this.store != null)
+			this.store.put(this.row, key, value);
+		else
+			this.putDecoration(key.name(), value);
+	}
+
+	public Object get(Object key)
+	{
+		if (this.fieldKey().equals(key))
+			return this.fieldValue();
+		if (this.store != null)
+			return this.store.get(this.row, key);
+
+		return (this.local == null) ? null : this.local.get(key);
+	}
+
+	public <T> T get(DecorationKey<T> key)
+	{
+		if (this.store != null)
+			return this.store.get(this.row, key);
+
+		return key.cast(this.get(key.name()));
+	}
+
+	/**
+	 * @return the decoration, or {@code NaN} if there is none.
+	 */
+	public double getDouble(DecorationKey<Double> key)
+	{
+		if (this.store != null)
+			return this.store.getDouble(this.row, key);
+
+		Object value = this.get(key.name());
+		if (value == null)
+			return Double.NaN;
+
+		return (value instanceof Number) ? ((Number) value).doubleValue() : key.cast(value);
+	}
+
+	/**
+	 * @return a new map of this element's decorations, including its value or
+	 *         weight.
+	 */
+	public HashMap<Object, Object> decorations()
+	{
+		HashMap<Object, Object> all;
+		if (this.store != null)
+			all = this.store.toMap(this.row);
+		else if (this.local != null)
+			all = new HashMap<Object, Object>(this.local);
+		else
+			all = new HashMap<Object, Object>();
+
+		all.put(this.fieldKey(), this.fieldValue());
+		return all;
+	}
+
+	/**
+	 * The value or weight always counts, so this is always true.
+	 */
+	public boolean hasDecorations()
+	{
+		return true;
+	}
+}
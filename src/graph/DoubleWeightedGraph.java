@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+/**
+ * A graph whose edge weights are stored as primitive {@code double}s in each
+ * edge rather than boxed, so comparing, hashing and freezing edges never
+ * unboxes.
+ *
+ * @param <V> The class that the Vertex value holds.
+ */
+public class DoubleWeightedGraph<V> extends Graph<V, Double>
+{
+	public DoubleWeightedGraph()
+	{
+		super();
+	}
+
+	public DoubleWeightedGraph(boolean directed)
+	{
+		super(directed);
+	}
+
+	public DoubleWeightedGraph(int expectedVertices, int expectedEdges)
+	{
+		super(expectedVertices, expectedEdges);
+	}
+
+	public DoubleWeightedGraph(int expectedVertices, int expectedEdges, boolean directed)
+	{
+		super(expectedVertices, expectedEdges, directed);
+	}
+
+	public Edge<V, Double> addEdge(Vertex<V, Double> v1, Vertex<V, Double> v2, double weight)
+	{
+		return this.addEdge(v1, v2, Double.valueOf(weight));
+	}
+
+	public Edge<V, Double> removeEdge(Vertex<V, Double> v1, Vertex<V, Double> v2, double weight)
+	{
+		return this.removeEdge(v1, v2, Double.valueOf(weight));
+	}
+
+	/**
+	 * @return the weight of {@code e}, which must be an edge of this graph.
+	 */
+	public double weight(Edge<V, Double> e)
+	{
+		return ((DoubleEdge) e).primitiveWeight;
+	}
+
+	protected IntrusiveEdge createEdge(Vertex<V, Double> source, Vertex<V, Double> target, Double weight)
+	{
+		if (weight == null)
+			throw new NullPointerException("Weight cannot be null");
+
+		return new DoubleEdge(source, target, weight.doubleValue());
+	}
+
+	public class DoubleEdge extends IntrusiveEdge implements PrimitiveWeighted
+	{
+		private final double primitiveWeight;
+
+		DoubleEdge(Vertex<V, Double> vertex1, Vertex<V, Double> vertex2, double newWeight)
+		{
+			super(vertex1, vertex2);
+			this.primitiveWeight = newWeight;
+		}
+
+		public double doubleWeight()
+		{
+			return this.primitiveWeight;
+		}
+
+		public Double getWeight()
+		{
+			return Double.valueOf(this.primitiveWeight);
+		}
+
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof DoubleWeightedGraph<?>.DoubleEdge))
+				return super.equals(o);
+
+			return Double.doubleToLongBits(this.primitiveWeight) == Double.doubleToLongBits(((DoubleWeightedGraph<?>.DoubleEdge) o).primitiveWeight)
+				&& this.sameEndpoints((Edge<?, ?>) o);
+		}
+
+		public int hashCode()
+		{
+			return pairHash(this.sourceVertex, this.targetVertex) + Double.hashCode(this.primitiveWeight);
+		}
+	}
+}
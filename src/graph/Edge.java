@@ -13,46 +13,60 @@
  */
 package graph;
 
-import graph.decorations.ReadDecorations;
-
 import java.util.HashMap;
 
 /**
  *
  * @author AWiggi5
  */
-public class Edge<V, E> implements ReadDecorations
+public class Edge<V, E> extends Decorated
 {
 	protected Vertex<V, E> sourceVertex;
 	protected Vertex<V, E> targetVertex;
+	protected E weight;
 
-	protected HashMap<Object, Object> decorations = new HashMap<Object, Object>();
+	/** Set by a directed graph on the edges it creates. */
+	boolean directed = false;
 
     public Edge()
     {
         this.sourceVertex = null;
         this.targetVertex = null;
-        this.decorations.put("weight", null);
+        this.weight = null;
     }
 
 	public Edge(Vertex<V, E> vertex1, Vertex<V, E> vertex2, E newWeight)
 	{
 		this.sourceVertex = vertex1;
 		this.targetVertex = vertex2;
-		this.decorations.put("weight", newWeight);
+		this.weight = newWeight;
 	}
 
 	public Edge(Vertex<V, E> vertex1, Vertex<V, E> vertex2, E newWeight, HashMap<Object, Object> newDecorations)
 	{
+		super(newDecorations);
 		this.sourceVertex = vertex1;
 		this.targetVertex = vertex2;
-		this.decorations = newDecorations;
-		this.decorations.put("weight", newWeight);
+		this.weight = newWeight;
 	}
 	
+	/**
+	 * Creates an edge whose subclass stores the weight and overrides
+	 * {@link #getWeight()}.
+	 */
+	protected Edge(Vertex<V, E> vertex1, Vertex<V, E> vertex2)
+	{
+		this.sourceVertex = vertex1;
+		this.targetVertex = vertex2;
+	}
+
 	public Edge(Edge<V, E> newEdge)
 	{
-		this(newEdge.sourceVertex, newEdge.targetVertex, newEdge.getWeight(), newEdge.decorations);
+		super(newEdge.sharedDecorations());
+		this.sourceVertex = newEdge.sourceVertex;
+		this.targetVertex = newEdge.targetVertex;
+		this.weight = newEdge.getWeight();
+		this.directed = newEdge.directed;
 	}
 	
     public Vertex<V, E> getSourceVertex()
@@ -73,25 +87,19 @@ public class Edge<V, E> implements ReadDecorations
     		return null;
     }
 
-    public HashMap<Object, Object> decorations()
+    String fieldKey()
     {
-    	return this.decorations;
+    	return "weight";
     }
 
-    public Object get(Object key)
+    Object fieldValue()
     {
-    	return this.decorations.get(key);
+    	return this.getWeight();
     }
 
-    @SuppressWarnings("unchecked")
 	public E getWeight()
     {
-    	return (E) this.decorations.get("weight");
-    }
-
-    public boolean hasDecorations()
-    {
-    	return !this.decorations.isEmpty();
+    	return this.weight;
     }
 
     public boolean isConnectedTo(Vertex<V, E> v)
@@ -99,19 +107,74 @@ public class Edge<V, E> implements ReadDecorations
         return sourceVertex.equals(v) || targetVertex.equals(v);
     }
 
+    /**
+     * @return true if this edge joins {@code v1} and {@code v2}; a directed
+     *         edge must also lead from {@code v1} to {@code v2}.
+     */
     public boolean connects(Vertex<V, E> v1, Vertex<V, E> v2)
     {
+        if (this.directed)
+            return this.sourceVertex.equals(v1) && this.targetVertex.equals(v2);
+
         return this.isConnectedTo(v1) && this.isConnectedTo(v2);
     }
 
-    public boolean equals(Edge<V, E> o)
+    public boolean isDirected()
     {
-    	return this.getWeight().equals(o.getWeight()) && this.connects(o.sourceVertex, o.targetVertex);
+        return this.directed;
+    }
+
+    public boolean equals(Object o)
+    {
+    	if (this == o)
+    		return true;
+    	if (!(o instanceof Edge<?, ?>))
+    		return false;
+
+    	Edge<?, ?> e = (Edge<?, ?>) o;
+    	Object weight = this.getWeight();
+    	if (weight == null ? e.getWeight() != null : !weight.equals(e.getWeight()))
+    		return false;
+
+    	return this.sameEndpoints(e);
+    }
+
+    /**
+     * Compares endpoints in order if either edge is directed, so an
+     * undirected edge can be used to look up a directed one. The pair hash
+     * is unordered either way.
+     */
+    boolean sameEndpoints(Edge<?, ?> e)
+    {
+    	if (this.sourceVertex.equals(e.sourceVertex) && this.targetVertex.equals(e.targetVertex))
+    		return true;
+
+    	return !this.directed && !e.directed
+    		&& this.sourceVertex.equals(e.targetVertex) && this.targetVertex.equals(e.sourceVertex);
     }
 
     public int hashCode()
     {
-    	return this.sourceVertex.hashCode() + this.targetVertex.hashCode() + this.getWeight().hashCode();
+    	Object weight = this.getWeight();
+    	return pairHash(this.sourceVertex, this.targetVertex) + (weight == null ? 0 : weight.hashCode());
+    }
+
+    /**
+     * Hashes an unordered pair of vertices. Each hash is mixed before they are
+     * summed so that pairs with equal sums of hashes don't collide.
+     */
+    static int pairHash(Vertex<?, ?> v1, Vertex<?, ?> v2)
+    {
+    	return mix(v1.hashCode()) + mix(v2.hashCode());
+    }
+
+    private static int mix(int h)
+    {
+    	h ^= h >>> 16;
+    	h *= 0x85EBCA6B;
+    	h ^= h >>> 13;
+    	h *= 0xC2B2AE35;
+    	return h ^ (h >>> 16);
     }
 
     public String toString()
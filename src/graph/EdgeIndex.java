@@ -0,0 +1,277 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.*;
+
+/**
+ * Indexes the edges of a graph by their pair of endpoints, unordered unless
+ * the index is directed. Lookups take the two endpoints directly, so finding
+ * the edges between two vertices neither scans adjacency nor allocates a key.
+ */
+class EdgeIndex<V, E>
+{
+	private EdgeBucket<V, E>[] table;
+	private int size = 0;
+	private final boolean directed;
+
+	public EdgeIndex()
+	{
+		this(16, false);
+	}
+
+	public EdgeIndex(int expectedPairs, boolean directed)
+	{
+		this.directed = directed;
+		this.table = newTable(Integer.highestOneBit(Math.max(expectedPairs, 8) * 2) * 2);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <V, E> EdgeBucket<V, E>[] newTable(int capacity)
+	{
+		return (EdgeBucket<V, E>[]) new EdgeBucket[capacity];
+	}
+
+	private static int hash(Vertex<?, ?> v1, Vertex<?, ?> v2)
+	{
+		return Edge.pairHash(v1, v2);
+	}
+
+	private int find(Vertex<V, E> v1, Vertex<V, E> v2, int h)
+	{
+		int mask = this.table.length - 1;
+		for (int i = h & mask; this.table[i] != null; i = (i + 1) & mask)
+			if (this.table[i].hash == h && this.table[i].joins(v1, v2))
+				return i;
+
+		return -1;
+	}
+
+	/**
+	 * @return the edges between {@code v1} and {@code v2}, or null if there
+	 *         are none.
+	 */
+	public EdgeBucket<V, E> get(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		int i = this.find(v1, v2, hash(v1, v2));
+		return (i < 0) ? null : this.table[i];
+	}
+
+	/**
+	 * @return false if an equal edge is already indexed.
+	 */
+	public boolean add(Edge<V, E> e)
+	{
+		Vertex<V, E> v1 = e.getSourceVertex(), v2 = e.getTargetVertex();
+		int h = hash(v1, v2);
+		int i = this.find(v1, v2, h);
+		if (i < 0)
+		{
+			if ((this.size + 1) * 2 > this.table.length)
+				this.resize(this.table.length * 2);
+
+			int mask = this.table.length - 1;
+			i = h & mask;
+			while (this.table[i] != null)
+				i = (i + 1) & mask;
+
+			this.table[i] = new EdgeBucket<V, E>(v1, v2, h, this.directed);
+			this.size++;
+		}
+		else if (this.table[i].contains(e))
+			return false;
+
+		this.table[i].put(e);
+		return true;
+	}
+
+	public void ensureCapacity(int expectedPairs)
+	{
+		if (expectedPairs * 2 > this.table.length)
+			this.resize(Integer.highestOneBit(expectedPairs * 2) * 2);
+	}
+
+	public boolean remove(Edge<V, E> e)
+	{
+		Vertex<V, E> v1 = e.getSourceVertex(), v2 = e.getTargetVertex();
+		int i = this.find(v1, v2, hash(v1, v2));
+		if (i < 0 || !this.table[i].take(e))
+			return false;
+
+		if (this.table[i].isEmpty())
+			this.delete(i);
+
+		return true;
+	}
+
+	/**
+	 * Removes the bucket of edges between {@code v1} and {@code v2}.
+	 *
+	 * @return the removed bucket, or null if there are no such edges.
+	 */
+	public EdgeBucket<V, E> removeAll(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		int i = this.find(v1, v2, hash(v1, v2));
+		if (i < 0)
+			return null;
+
+		EdgeBucket<V, E> bucket = this.table[i];
+		this.delete(i);
+		return bucket;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(this.table, null);
+		this.size = 0;
+	}
+
+	private void delete(int i)
+	{
+		int mask = this.table.length - 1;
+		int j = i;
+		while (true)
+		{
+			j = (j + 1) & mask;
+			if (this.table[j] == null)
+				break;
+
+			int k = this.table[j].hash & mask;
+			if ((i <= j) ? (i < k && k <= j) : (i < k || k <= j))
+				continue;
+
+			this.table[i] = this.table[j];
+			i = j;
+		}
+
+		this.table[i] = null;
+		this.size--;
+	}
+
+	private void resize(int capacity)
+	{
+		EdgeBucket<V, E>[] old = this.table;
+		this.table = newTable(capacity);
+
+		int mask = capacity - 1;
+		for (int i = 0; i < old.length; i++)
+		{
+			if (old[i] == null)
+				continue;
+
+			int j = old[i].hash & mask;
+			while (this.table[j] != null)
+				j = (j + 1) & mask;
+			this.table[j] = old[i];
+		}
+	}
+
+	/**
+	 * The edges joining one pair of vertices, or leading from the first to
+	 * the second if the bucket is directed. {@link Graph#getAllEdges(Vertex,
+	 * Vertex)} hands out copies, since removals reorder a bucket in place.
+	 */
+	static class EdgeBucket<V, E> extends AbstractSet<Edge<V, E>>
+	{
+		private final Vertex<V, E> first;
+		private final Vertex<V, E> second;
+		private final int hash;
+		private final boolean directed;
+
+		private Object[] edges = new Object[1];
+		private int size = 0;
+
+		EdgeBucket(Vertex<V, E> first, Vertex<V, E> second, int hash, boolean directed)
+		{
+			this.first = first;
+			this.second = second;
+			this.hash = hash;
+			this.directed = directed;
+		}
+
+		boolean joins(Vertex<V, E> v1, Vertex<V, E> v2)
+		{
+			return (this.first.equals(v1) && this.second.equals(v2))
+				|| (!this.directed && this.first.equals(v2) && this.second.equals(v1));
+		}
+
+		void put(Edge<V, E> e)
+		{
+			if (this.size == this.edges.length)
+				this.edges = Arrays.copyOf(this.edges, this.size * 2);
+			this.edges[this.size++] = e;
+		}
+
+		boolean take(Edge<V, E> e)
+		{
+			for (int i = 0; i < this.size; i++)
+			{
+				if (this.edges[i].equals(e))
+				{
+					this.edges[i] = this.edges[--this.size];
+					this.edges[this.size] = null;
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		@SuppressWarnings("unchecked")
+		Edge<V, E> first()
+		{
+			return (Edge<V, E>) this.edges[0];
+		}
+
+		public boolean contains(Object o)
+		{
+			for (int i = 0; i < this.size; i++)
+				if (this.edges[i].equals(o))
+					return true;
+
+			return false;
+		}
+
+		public int size()
+		{
+			return this.size;
+		}
+
+		public Iterator<Edge<V, E>> iterator()
+		{
+			return new Iterator<Edge<V, E>>()
+			{
+				private int cursor = 0;
+
+				public boolean hasNext()
+				{
+					return this.cursor < size;
+				}
+
+				@SuppressWarnings("unchecked")
+				public Edge<V, E> next()
+				{
+					if (this.cursor >= size)
+						throw new NoSuchElementException();
+					return (Edge<V, E>) edges[this.cursor++];
+				}
+
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+}
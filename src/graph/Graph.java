@@ -13,14 +13,130 @@
  */
 package graph;
 
+import graph.decorations.DecorationKey;
+import graph.decorations.DecorationStore;
 import graph.decorations.WriteDecorations;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class Graph<V, E>
+public class Graph<V, E> implements GraphView<V, E>
 {
-    private HashMap<Vertex<V, E>, IntrusiveVertex> vertices = new HashMap<Vertex<V, E>, IntrusiveVertex>();
-    private HashMap<Edge<V, E>, IntrusiveEdge> edges = new HashMap<Edge<V, E>, IntrusiveEdge>();;
+    private Map<Vertex<V, E>, IntrusiveVertex> vertices;
+    private Map<Edge<V, E>, IntrusiveEdge> edges;
+    private EdgeIndex<V, E> pairs;
+
+    private int vertexCapacity;
+    private int edgeCapacity;
+    private final boolean directed;
+
+    private final DecorationStore vertexDecorations = new DecorationStore();
+    private final DecorationStore edgeDecorations = new DecorationStore();
+
+    private volatile Object[] listeners = new Object[0];
+    private volatile SnapshotTracker<V, E> snapshots = null;
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    public Graph()
+    {
+        this(16, 16, false);
+    }
+
+    /**
+     * Creates an empty graph whose edges are directed if {@code directed} is
+     * true. A directed graph keeps each vertex's outgoing and incoming edges
+     * apart.
+     */
+    public Graph(boolean directed)
+    {
+        this(16, 16, directed);
+    }
+
+    /**
+     * Creates a graph sized to hold the given number of vertices and edges
+     * without rehashing.
+     */
+    public Graph(int expectedVertices, int expectedEdges)
+    {
+        this(expectedVertices, expectedEdges, false);
+    }
+
+    public Graph(int expectedVertices, int expectedEdges, boolean directed)
+    {
+        this.vertices = new HashMap<Vertex<V, E>, IntrusiveVertex>(capacityFor(expectedVertices));
+        this.edges = new HashMap<Edge<V, E>, IntrusiveEdge>(capacityFor(expectedEdges));
+        this.pairs = new EdgeIndex<V, E>(expectedEdges, directed);
+        this.vertexCapacity = expectedVertices;
+        this.edgeCapacity = expectedEdges;
+        this.directed = directed;
+    }
+
+    /**
+     * Creates a graph over the given (empty) tables. A null {@code pairs}
+     * means the subclass overrides every method that uses the pair index.
+     */
+    Graph(Map<Vertex<V, E>, IntrusiveVertex> vertices, Map<Edge<V, E>, IntrusiveEdge> edges, EdgeIndex<V, E> pairs)
+    {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.pairs = pairs;
+        this.directed = false;
+    }
+
+    static int capacityFor(int size)
+    {
+        return size * 4 / 3 + 1;
+    }
+
+    public synchronized void addGraphListener(GraphListener<V, E> listener)
+    {
+        Object[] grown = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+        grown[this.listeners.length] = listener;
+        this.listeners = grown;
+    }
+
+    public synchronized void removeGraphListener(GraphListener<V, E> listener)
+    {
+        ArrayList<Object> kept = new ArrayList<Object>(Arrays.asList(this.listeners));
+        kept.remove(listener);
+        this.listeners = kept.toArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    void fireVertexAdded(Vertex<V, E> v)
+    {
+        this.modificationCount.incrementAndGet();
+        Object[] current = this.listeners;
+        for (int i = 0; i < current.length; i++)
+            ((GraphListener<V, E>) current[i]).vertexAdded(v);
+    }
+
+    @SuppressWarnings("unchecked")
+    void fireVertexRemoved(Vertex<V, E> v)
+    {
+        this.modificationCount.incrementAndGet();
+        Object[] current = this.listeners;
+        for (int i = 0; i < current.length; i++)
+            ((GraphListener<V, E>) current[i]).vertexRemoved(v);
+    }
+
+    @SuppressWarnings("unchecked")
+    void fireEdgeAdded(Edge<V, E> e)
+    {
+        this.modificationCount.incrementAndGet();
+        Object[] current = this.listeners;
+        for (int i = 0; i < current.length; i++)
+            ((GraphListener<V, E>) current[i]).edgeAdded(e);
+    }
+
+    @SuppressWarnings("unchecked")
+    void fireEdgeRemoved(Edge<V, E> e)
+    {
+        this.modificationCount.incrementAndGet();
+        Object[] current = this.listeners;
+        for (int i = 0; i < current.length; i++)
+            ((GraphListener<V, E>) current[i]).edgeRemoved(e);
+    }
 
     public boolean addEdge(Edge<V, E> e)
     {
@@ -29,60 +145,150 @@ public class Graph<V, E>
 
     public Edge<V, E> addEdge(Vertex<V, E> v1, Vertex<V, E> v2, E e)
     {
-        if (!this.vertices.containsKey(v1))
-            throw new IllegalArgumentException("v1 not found in graph.");
-        if (!this.vertices.containsKey(v2))
-            throw new IllegalArgumentException("v2 not found in graph.");
         if (v1 == null || v2 == null)
-            throw new NullPointerException("Parameters cannto be null");
+            throw new NullPointerException("Parameters cannot be null");
 
         IntrusiveVertex source = this.vertices.get(v1);
+        if (source == null)
+            throw new IllegalArgumentException("v1 not found in graph.");
         IntrusiveVertex target = this.vertices.get(v2);
+        if (target == null)
+            throw new IllegalArgumentException("v2 not found in graph.");
+
+        return this.connect(source, target, e);
+    }
 
-        Edge<V, E> newEdge = new Edge<V, E>(source, target, e);
-        if (this.edges.containsKey(newEdge))
+    /**
+     * Adds an edge between two vertices already in this graph.
+     *
+     * @return the new edge, or null if an equal edge already exists.
+     */
+    Edge<V, E> connect(IntrusiveVertex source, IntrusiveVertex target, E e)
+    {
+        IntrusiveEdge newEdge = this.createEdge(source, target, e);
+        newEdge.directed = this.directed;
+        if (!this.pairs.add(newEdge))
             return null;
+        newEdge.bind(this.edgeDecorations);
 
-        source.addEdge(newEdge);
-        target.addEdge(newEdge);
+        source.appendEdge(newEdge);
+        if (this.directed)
+            target.appendIncoming(newEdge);
+        else if (target != source)
+            target.appendEdge(newEdge);
 
-        this.edges.put(newEdge, new IntrusiveEdge(newEdge));
+        this.edges.put(newEdge, newEdge);
+        this.fireEdgeAdded(newEdge);
 
         return newEdge;
     }
 
+    /**
+     * Creates the graph's own edge object for a new edge. Subclasses override
+     * this to store weights differently.
+     */
+    protected IntrusiveEdge createEdge(Vertex<V, E> source, Vertex<V, E> target, E weight)
+    {
+        return new IntrusiveEdge(source, target, weight);
+    }
+
     public boolean addVertex(Vertex<V, E> v)
     {
         if (v == null)
             throw new NullPointerException("Cannot add a `null` Vertex.");
 
-        if (this.vertices.containsKey(v))
+        if (this.vertices.get(v) != null)
             return false;
 
-        this.vertices.put(v, new IntrusiveVertex(v));
+        IntrusiveVertex vertex = this.adopt(v);
+        this.vertices.put(v, vertex);
+        this.fireVertexAdded(vertex);
         return true;
+    }
+
+    /**
+     * @return a new graph-owned copy of {@code v}, with empty adjacency of its
+     *         own so that edges can be appended to it unchecked.
+     */
+    IntrusiveVertex adopt(Vertex<V, E> v)
+    {
+        IntrusiveVertex vertex = new IntrusiveVertex(v);
+        vertex.edges = new IndexedAdjacency<V, E>(vertex);
+        if (this.directed)
+            vertex.incoming = new IndexedAdjacency<V, E>(vertex);
+        vertex.bind(this.vertexDecorations);
+        return vertex;
+    }
 
+    /**
+     * @return the graph's own copy of {@code v}, adding it first if needed.
+     */
+    IntrusiveVertex insertVertex(Vertex<V, E> v)
+    {
+        IntrusiveVertex vertex = this.vertices.get(v);
+        if (vertex == null)
+        {
+            vertex = this.adopt(v);
+            this.vertices.put(v, vertex);
+            this.fireVertexAdded(vertex);
+        }
+
+        return vertex;
     }
 
-    public boolean containsEdge(Vertex<V, E> v1, Vertex<V, E> v2)
+    /**
+     * Adds all of the given vertices and then all of the given edges, whose
+     * endpoints must be in this graph or among {@code newVertices}. The
+     * graph's tables are grown once up front rather than as they fill.
+     *
+     * @return true if the graph changed.
+     */
+    public boolean addAll(Collection<? extends Vertex<V, E>> newVertices, Collection<? extends Edge<V, E>> newEdges)
     {
-        if (v1 == null || v2 == null)
-            return false;
+        this.ensureCapacity(this.vertices.size() + newVertices.size(), this.edges.size() + newEdges.size());
 
-        Vertex<V, E> vertex1 = this.vertices.get(v1);
-        Vertex<V, E> vertex2 = this.vertices.get(v2);
+        boolean changed = false;
+        Iterator<? extends Vertex<V, E>> vi = newVertices.iterator();
+        while (vi.hasNext())
+            changed |= this.addVertex(vi.next());
 
-        if (vertex1 == null || vertex2 == null)
-            return false;
+        Iterator<? extends Edge<V, E>> ei = newEdges.iterator();
+        while (ei.hasNext())
+        {
+            Edge<V, E> e = ei.next();
+            changed |= (this.addEdge(e.getSourceVertex(), e.getTargetVertex(), e.getWeight()) != null);
+        }
 
-        Vertex<V, E> smaller = (vertex1.degree() < vertex2.degree()) ? vertex1 : vertex2;
+        return changed;
+    }
 
-        Iterator<Edge<V, E>> i = smaller.edgesOf().iterator();
-        while (i.hasNext())
-            if (i.next().connects(vertex1, vertex2))
-                return true;
+    void ensureCapacity(int vertexCount, int edgeCount)
+    {
+        if (vertexCount > this.vertexCapacity)
+        {
+            this.vertexCapacity = vertexCount;
+            HashMap<Vertex<V, E>, IntrusiveVertex> grown = new HashMap<Vertex<V, E>, IntrusiveVertex>(capacityFor(vertexCount));
+            grown.putAll(this.vertices);
+            this.vertices = grown;
+        }
 
-        return false;
+        if (edgeCount > this.edgeCapacity)
+        {
+            this.edgeCapacity = edgeCount;
+            HashMap<Edge<V, E>, IntrusiveEdge> grown = new HashMap<Edge<V, E>, IntrusiveEdge>(capacityFor(edgeCount));
+            grown.putAll(this.edges);
+            this.edges = grown;
+        }
+
+        this.pairs.ensureCapacity(edgeCount);
+    }
+
+    public boolean containsEdge(Vertex<V, E> v1, Vertex<V, E> v2)
+    {
+        if (v1 == null || v2 == null)
+            return false;
+
+        return this.pairs.get(v1, v2) != null;
     }
 
     public boolean containsEdge(Edge<V, E> e)
@@ -102,97 +308,374 @@ public class Graph<V, E>
 
     public Set<Edge<V, E>> edgesOf(Vertex<V, E> vertex)
     {
-        return Collections.unmodifiableSet(this.vertices.get(vertex).edgesOf());
+        return this.vertices.get(vertex).edgesOf();
     }
 
-    public SortedSet<Edge<V, E>> getAllEdges(Vertex<V, E> v1, Vertex<V, E> v2)
+    public Set<Edge<V, E>> outgoingEdgesOf(Vertex<V, E> vertex)
     {
-        TreeSet<Edge<V, E>> connectedEdges = new TreeSet<Edge<V, E>>();
+        return this.vertices.get(vertex).outgoingEdgesOf();
+    }
 
-        Vertex<V, E> vertex1 = this.vertices.get(v1);
-        Vertex<V, E> vertex2 = this.vertices.get(v2);
-        if (vertex1 == null || vertex2 == null)
-            return null;
+    public Set<Edge<V, E>> incomingEdgesOf(Vertex<V, E> vertex)
+    {
+        return this.vertices.get(vertex).incomingEdgesOf();
+    }
 
-        Iterator<Edge<V, E>> i = vertex1.edgesOf().iterator();
-        Edge<V, E> edge = null;
-        while (i.hasNext())
+    public boolean isDirected()
+    {
+        return this.directed;
+    }
+
+    /**
+     * @return a count that changes whenever a vertex or edge is added or
+     *         removed, so a copy of the graph can tell when it is stale.
+     */
+    public long modificationCount()
+    {
+        return this.modificationCount.get();
+    }
+
+    /**
+     * Takes a read-only compressed-sparse-row snapshot of this graph. Later
+     * changes to this graph are not reflected in the snapshot.
+     */
+    public CsrGraph<V, E> freeze()
+    {
+        return new CsrGraph<V, E>(this);
+    }
+
+    /**
+     * Returns an immutable view of this graph as it is now, which readers may
+     * iterate while the graph keeps changing. The first call copies the
+     * graph, must not race with changes to it, and from then on every change
+     * also updates the latest snapshot in O(log n), so later calls are O(1).
+     */
+    public GraphSnapshot<V, E> snapshot()
+    {
+        SnapshotTracker<V, E> tracker = this.snapshots;
+        if (tracker == null)
         {
-            edge = i.next();
-            if (edge.connects(vertex1, vertex2))
-                connectedEdges.add(edge);
+            synchronized (this)
+            {
+                tracker = this.snapshots;
+                if (tracker == null)
+                {
+                    tracker = new SnapshotTracker<V, E>(GraphSnapshot.of(this.vertices.values(), this.edges.keySet(), this.directed));
+                    this.addGraphListener(tracker);
+                    this.snapshots = tracker;
+                }
+            }
         }
 
-        return Collections.unmodifiableSortedSet(connectedEdges);
+        return tracker.current();
+    }
+
+    /**
+     * @return a read-only copy of the edges between {@code v1} and
+     *         {@code v2}, or null if either is not in the graph. This is a
+     *         plain {@link Set} rather than a {@link SortedSet}, since edges
+     *         have no natural order.
+     */
+    public Set<Edge<V, E>> getAllEdges(Vertex<V, E> v1, Vertex<V, E> v2)
+    {
+        if (v1 == null || v2 == null)
+            return null;
+
+        EdgeIndex.EdgeBucket<V, E> bucket = this.pairs.get(v1, v2);
+        if (bucket != null)
+            return Collections.unmodifiableSet(new HashSet<Edge<V, E>>(bucket));
+
+        if (!this.vertices.containsKey(v1) || !this.vertices.containsKey(v2))
+            return null;
+
+        return Collections.emptySet();
     }
 
     public Edge<V, E> getEdge(Vertex<V, E> v1, Vertex<V, E> v2)
     {
-        return this.getAllEdges(v1, v2).first();
+        if (v1 == null || v2 == null)
+            return null;
+
+        EdgeIndex.EdgeBucket<V, E> bucket = this.pairs.get(v1, v2);
+        return (bucket == null) ? null : bucket.first();
     }
 
+    /**
+     * Decorates the graph's own copy of {@code v}, which is what
+     * {@link #vertexSet()} and the endpoints of this graph's edges return.
+     */
     public void putVertexDecoration(Vertex<V, E> v, Object key, Object value)
     {
     	this.vertices.get(v).put(key, value);
     }
+
+    public <T> void putVertexDecoration(Vertex<V, E> v, DecorationKey<T> key, T value)
+    {
+    	this.vertices.get(v).put(key, value);
+    }
     
     public void putEdgeDecoration(Edge<V, E> e, Object key, Object value)
     {
     	this.edges.get(e).put(key, value);
     }
+
+    public <T> void putEdgeDecoration(Edge<V, E> e, DecorationKey<T> key, T value)
+    {
+    	this.edges.get(e).put(key, value);
+    }
+
+    /**
+     * @return the columns holding every vertex's decorations, for scanning
+     *         one decoration across all vertices.
+     */
+    public DecorationStore vertexDecorations()
+    {
+    	return this.vertexDecorations;
+    }
+
+    public DecorationStore edgeDecorations()
+    {
+    	return this.edgeDecorations;
+    }
     
     public boolean removeAllEdges(Collection<? extends Edge<V,E>> edges)
     {
-        // TODO Write removeAllEdges(Collection<? extends ET> edges)
-        throw new UnsupportedOperationException("Not supported yet.");
+        boolean changed = false;
+        Iterator<? extends Edge<V, E>> i = edges.iterator();
+        while (i.hasNext())
+            changed |= this.removeEdge(i.next());
+
+        return changed;
     }
 
+    /**
+     * Removes every edge between {@code v1} and {@code v2}.
+     *
+     * @return the removed edges, or null if either vertex is not in the graph.
+     */
     public Set<Edge<V, E>> removeAllEdges(Vertex<V, E> v1, Vertex<V, E> v2)
     {
-        // TODO Write removeAllEdges(VV v1, VV v2)
-        throw new UnsupportedOperationException("Not supported yet.");
+        if (v1 == null || v2 == null)
+            return null;
+
+        IntrusiveVertex vertex1 = this.vertices.get(v1);
+        IntrusiveVertex vertex2 = this.vertices.get(v2);
+        if (vertex1 == null || vertex2 == null)
+            return null;
+
+        EdgeIndex.EdgeBucket<V, E> bucket = this.pairs.removeAll(vertex1, vertex2);
+        if (bucket == null)
+            return Collections.emptySet();
+
+        HashSet<Edge<V, E>> removed = new HashSet<Edge<V, E>>(bucket);
+        Iterator<Edge<V, E>> i = removed.iterator();
+        while (i.hasNext())
+        {
+            Edge<V, E> e = i.next();
+            vertex1.removeEdge(e);
+            vertex2.removeEdge(e);
+            this.edges.remove(e);
+            this.fireEdgeRemoved(e);
+            e.unbind();
+        }
+
+        return removed;
     }
 
+    /**
+     * Removes the given vertices and every edge incident to them. Each
+     * incident edge is visited once per removed endpoint, and edges between
+     * two removed vertices are not unlinked from either adjacency since both
+     * are discarded. When the removed vertices touch at least half of the
+     * graph's edges, the edge tables are rebuilt from the surviving vertices
+     * instead of removing entries one by one.
+     *
+     * @return true if the graph changed.
+     */
+    @SuppressWarnings("unchecked")
     public boolean removeAllVertices(Collection<? extends Vertex<V, E>> vertices)
     {
-        // TODO Write removeAllVertices(Collection<? extends VV> vertices)
-        throw new UnsupportedOperationException("Not supported yet.");
+        HashSet<IntrusiveVertex> removed = new HashSet<IntrusiveVertex>(capacityFor(vertices.size()));
+        int incident = 0;
+
+        Iterator<? extends Vertex<V, E>> vi = vertices.iterator();
+        while (vi.hasNext())
+        {
+            IntrusiveVertex vertex = this.vertices.remove(vi.next());
+            if (vertex != null)
+            {
+                removed.add(vertex);
+                incident += vertex.degree();
+            }
+        }
+
+        if (removed.isEmpty())
+            return false;
+
+        boolean rebuild = incident * 2 >= this.edges.size();
+
+        Iterator<IntrusiveVertex> ri = removed.iterator();
+        while (ri.hasNext())
+        {
+            IntrusiveVertex vertex = ri.next();
+            Iterator<Edge<V, E>> ei = vertex.edgesOf().iterator();
+            while (ei.hasNext())
+            {
+                Edge<V, E> e = ei.next();
+                IntrusiveVertex opposite = (IntrusiveVertex) ((e.getSourceVertex() == vertex) ? e.getTargetVertex() : e.getSourceVertex());
+                boolean ownsEdge = true;
+                if (!removed.contains(opposite))
+                    opposite.removeEdge(e);
+                else
+                    ownsEdge = (e.getSourceVertex() == vertex);
+
+                if (!rebuild && ownsEdge)
+                {
+                    this.edges.remove(e);
+                    this.pairs.remove(e);
+                }
+                if (ownsEdge)
+                {
+                    this.fireEdgeRemoved(e);
+                    e.unbind();
+                }
+            }
+        }
+
+        if (rebuild)
+            this.rebuildEdgeTables();
+
+        ri = removed.iterator();
+        while (ri.hasNext())
+        {
+            IntrusiveVertex vertex = ri.next();
+            vertex.edges.clear();
+            if (vertex.incoming != null)
+                vertex.incoming.clear();
+            this.fireVertexRemoved(vertex);
+            vertex.unbind();
+        }
+
+        return true;
     }
 
-    public Edge<V, E> removeEdge(Vertex<V, E> v1, Vertex<V, E> v2, E weight)
+    private void rebuildEdgeTables()
     {
-        IntrusiveVertex vertex1 = this.vertices.get(v1);
-        IntrusiveVertex vertex2 = this.vertices.get(v2);
-        Edge<V, E> edge1 = this.edges.get(new Edge<V, E>(vertex1, vertex2, weight));
+        int size = this.edges.size();
+        HashMap<Edge<V, E>, IntrusiveEdge> keptEdges = new HashMap<Edge<V, E>, IntrusiveEdge>(capacityFor(size));
+        EdgeIndex<V, E> keptPairs = new EdgeIndex<V, E>(size, this.directed);
 
-        if (vertex1 == null || vertex2 == null || edge1 == null)
-            return null;
+        Iterator<IntrusiveVertex> vi = this.vertices.values().iterator();
+        while (vi.hasNext())
+        {
+            IntrusiveVertex vertex = vi.next();
+            Iterator<Edge<V, E>> ei = vertex.edges.iterator();
+            while (ei.hasNext())
+            {
+                Edge<V, E> e = ei.next();
+                if (e.getSourceVertex() == vertex)
+                {
+                    keptEdges.put(e, (IntrusiveEdge) e);
+                    keptPairs.add(e);
+                }
+            }
+        }
 
-        vertex1.removeEdge(edge1);
-        vertex2.removeEdge(edge1);
-        edges.remove(edge1);
+        this.edges = keptEdges;
+        this.pairs = keptPairs;
+        this.edgeCapacity = size;
+    }
 
-        return edge1;
+    public Edge<V, E> removeEdge(Vertex<V, E> v1, Vertex<V, E> v2, E weight)
+    {
+        if (v1 == null || v2 == null)
+            return null;
+
+        IntrusiveEdge edge = this.edges.get(new Edge<V, E>(v1, v2, weight));
+        return this.disconnect(edge) ? edge : null;
     }
 
     public boolean removeEdge(Edge<V, E> e)
     {
-        return e.equals(this.removeEdge(e.getSourceVertex(), e.getTargetVertex(), e.getWeight()));
+        return e != null && this.disconnect(this.edges.get(e));
+    }
+
+    /**
+     * Removes {@code e}, which is null or an edge of this graph, from the edge
+     * tables and from both endpoints.
+     */
+    @SuppressWarnings("unchecked")
+    boolean disconnect(IntrusiveEdge e)
+    {
+        if (e == null)
+            return false;
+
+        this.edges.remove(e);
+        this.pairs.remove(e);
+        ((IntrusiveVertex) e.getSourceVertex()).removeEdge(e);
+        ((IntrusiveVertex) e.getTargetVertex()).removeEdge(e);
+        this.fireEdgeRemoved(e);
+        e.unbind();
+
+        return true;
     }
 
     public boolean removeVertex(Vertex<V, E> v)
     {
-        // TODO Write removeVertex(VV v)
-        throw new UnsupportedOperationException("Not supported yet.");
+        if (v == null)
+            return false;
+
+        return this.removeAllVertices(Collections.singleton(v));
     }
-    
+
+    /**
+     * @return a read-only view of the graph's own vertices.
+     */
     public Set<Vertex<V,E>> vertexSet()
     {
-        return vertices.keySet();
+        return new VertexSet();
+    }
+
+    private class VertexSet extends AbstractSet<Vertex<V, E>>
+    {
+        public boolean contains(Object o)
+        {
+            return o != null && vertices.containsKey(o);
+        }
+
+        public int size()
+        {
+            return vertices.size();
+        }
+
+        public Iterator<Vertex<V, E>> iterator()
+        {
+            final Iterator<IntrusiveVertex> i = vertices.values().iterator();
+            return new Iterator<Vertex<V, E>>()
+            {
+                public boolean hasNext()
+                {
+                    return i.hasNext();
+                }
+
+                public Vertex<V, E> next()
+                {
+                    return i.next();
+                }
+
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
     }
     
     protected class IntrusiveVertex extends Vertex<V, E> implements WriteDecorations
     {
+        /** Set once a ConcurrentGraph has removed this vertex. */
+        boolean detached = false;
+
         public IntrusiveVertex()
         {
             super();
@@ -203,19 +686,19 @@ public class Graph<V, E>
             super(newValue);
         }
 
-        public IntrusiveVertex(V newValue, TreeSet<Edge<V, E>> newEdges)
+        public IntrusiveVertex(V newValue, Adjacency<V, E> newEdges)
         {
             super(newValue, newEdges);
         }
         
-        public IntrusiveVertex(V newValue, TreeSet<Edge<V, E>> newEdges, HashMap<Object, Object> newDecorations)
+        public IntrusiveVertex(V newValue, Adjacency<V, E> newEdges, HashMap<Object, Object> newDecorations)
         {
         	super(newValue, newEdges, newDecorations);
         }
 
         public IntrusiveVertex(Vertex<V, E> v)
         {
-            super(v.getValue(), v.edges, v.decorations);
+            super(v);
         }
 
         public void addEdge(Edge<V, E> e)
@@ -223,19 +706,54 @@ public class Graph<V, E>
         	this.edges.add(e);
         }
 
+        /**
+         * Adds {@code e}, which the caller knows is not yet incident here.
+         */
+        @SuppressWarnings("unchecked")
+        void appendEdge(Edge<V, E> e)
+        {
+            if (this.edges instanceof IndexedAdjacency<?, ?>)
+                ((IndexedAdjacency<V, E>) this.edges).append(e);
+            else
+                this.edges.add(e);
+        }
+
         public void put(Object key, Object value)
         {
-        	this.decorations.put(key, value);
+        	this.putDecoration(key, value);
+        }
+
+        public <T> void put(DecorationKey<T> key, T value)
+        {
+        	this.putDecoration(key, value);
         }
         
+        /**
+         * Adds {@code e}, which leads to this vertex of a directed graph.
+         */
+        @SuppressWarnings("unchecked")
+        void appendIncoming(Edge<V, E> e)
+        {
+            if (this.incoming instanceof IndexedAdjacency<?, ?>)
+                ((IndexedAdjacency<V, E>) this.incoming).append(e);
+            else
+                this.incoming.add(e);
+        }
+
         public boolean removeEdge(Edge<V, E> e)
         {
-            return this.edges.remove(e);
+            boolean removed = this.edges.remove(e);
+            if (this.incoming != null)
+                removed |= this.incoming.remove(e);
+
+            return removed;
         }
 
         public Vertex<V, E> readOnlyVertex()
         {
-            return new Vertex<V, E>(this.getValue(), this.edges);
+            Vertex<V, E> v = new Vertex<V, E>(this.getValue(), this.edges);
+            v.incoming = this.incoming;
+            return v;
         }
 
     }
@@ -258,6 +776,11 @@ public class Graph<V, E>
     		super(vertex1, vertex2, newWeight, newDecorations);
     	}
     	
+    	protected IntrusiveEdge(Vertex<V, E> vertex1, Vertex<V, E> vertex2)
+    	{
+    		super(vertex1, vertex2);
+    	}
+
     	public IntrusiveEdge(Edge<V, E> newEdge)
     	{
     		super(newEdge);
@@ -265,7 +788,12 @@ public class Graph<V, E>
 
 		public void put(Object key, Object value) 
 		{
-			this.decorations.put(key, value);			
+			this.putDecoration(key, value);
+		}
+
+		public <T> void put(DecorationKey<T> key, T value)
+		{
+			this.putDecoration(key, value);
 		}
     	
     }
@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.*;
+
+/**
+ * Collects vertices and edges and builds a {@link Graph} from them in one
+ * pass. Vertices are referred to by the {@code int} id returned from
+ * {@link #addVertex(Vertex)}, so edge lists can be given as plain arrays of
+ * ids. The graph's tables and every vertex's adjacency are sized up front.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public class GraphBuilder<V, E>
+{
+	private ArrayList<Vertex<V, E>> vertices;
+
+	private int[] sources;
+	private int[] targets;
+	private Object[] weights;
+	private int edgeCount = 0;
+	private boolean directed = false;
+
+	public GraphBuilder()
+	{
+		this(16, 16);
+	}
+
+	public GraphBuilder(int expectedVertices, int expectedEdges)
+	{
+		this.vertices = new ArrayList<Vertex<V, E>>(expectedVertices);
+		this.sources = new int[Math.max(expectedEdges, 1)];
+		this.targets = new int[Math.max(expectedEdges, 1)];
+		this.weights = new Object[Math.max(expectedEdges, 1)];
+	}
+
+	/**
+	 * @return the id of the new vertex.
+	 */
+	public int addVertex(V value)
+	{
+		return this.addVertex(new Vertex<V, E>(value));
+	}
+
+	/**
+	 * @return the id of {@code v}.
+	 */
+	public int addVertex(Vertex<V, E> v)
+	{
+		if (v == null)
+			throw new NullPointerException("Cannot add a `null` Vertex.");
+
+		this.vertices.add(v);
+		return this.vertices.size() - 1;
+	}
+
+	public GraphBuilder<V, E> addEdge(int source, int target, E weight)
+	{
+		this.checkVertex(source);
+		this.checkVertex(target);
+		this.ensureEdgeCapacity(this.edgeCount + 1);
+
+		this.sources[this.edgeCount] = source;
+		this.targets[this.edgeCount] = target;
+		this.weights[this.edgeCount] = weight;
+		this.edgeCount++;
+
+		return this;
+	}
+
+	/**
+	 * Adds one edge per consecutive pair of ids in {@code pairs}.
+	 *
+	 * @param weights the weight of each edge, or null to leave every weight
+	 *            null.
+	 */
+	public GraphBuilder<V, E> addEdges(int[] pairs, E[] weights)
+	{
+		if (pairs.length % 2 != 0)
+			throw new IllegalArgumentException("pairs must hold an even number of ids.");
+
+		int count = pairs.length / 2;
+		this.checkWeights(weights, count);
+		for (int i = 0; i < pairs.length; i++)
+			this.checkVertex(pairs[i]);
+		this.ensureEdgeCapacity(this.edgeCount + count);
+
+		for (int i = 0; i < count; i++)
+		{
+			this.sources[this.edgeCount] = pairs[2 * i];
+			this.targets[this.edgeCount] = pairs[2 * i + 1];
+			this.weights[this.edgeCount] = (weights == null) ? null : weights[i];
+			this.edgeCount++;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Adds one edge per element of {@code edges}, each holding the source id
+	 * in its high 32 bits and the target id in its low 32 bits.
+	 *
+	 * @param weights the weight of each edge, or null to leave every weight
+	 *            null.
+	 */
+	public GraphBuilder<V, E> addEdges(long[] edges, E[] weights)
+	{
+		this.checkWeights(weights, edges.length);
+		for (int i = 0; i < edges.length; i++)
+		{
+			this.checkVertex((int) (edges[i] >>> 32));
+			this.checkVertex((int) edges[i]);
+		}
+		this.ensureEdgeCapacity(this.edgeCount + edges.length);
+
+		for (int i = 0; i < edges.length; i++)
+		{
+			this.sources[this.edgeCount] = (int) (edges[i] >>> 32);
+			this.targets[this.edgeCount] = (int) edges[i];
+			this.weights[this.edgeCount] = (weights == null) ? null : weights[i];
+			this.edgeCount++;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Makes {@link #build()} return a directed graph.
+	 */
+	public GraphBuilder<V, E> setDirected(boolean isDirected)
+	{
+		this.directed = isDirected;
+		return this;
+	}
+
+	/**
+	 * Builds a new graph holding every vertex and edge added so far. Vertices
+	 * added more than once keep their first occurrence, and duplicate edges
+	 * are dropped as by {@link Graph#addEdge(Vertex, Vertex, Object)}.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Graph<V, E> build()
+	{
+		int n = this.vertices.size();
+
+		// a directed graph presizes outgoing edges here and incoming edges below
+		int[] degrees = new int[n];
+		int[] inDegrees = this.directed ? new int[n] : degrees;
+		for (int e = 0; e < this.edgeCount; e++)
+		{
+			degrees[this.sources[e]]++;
+			if (this.directed || this.sources[e] != this.targets[e])
+				inDegrees[this.targets[e]]++;
+		}
+
+		Graph<V, E> g = new Graph<V, E>(n, this.edgeCount, this.directed);
+
+		Graph<V, E>.IntrusiveVertex[] resolved = (Graph<V, E>.IntrusiveVertex[]) new Graph.IntrusiveVertex[n];
+		for (int v = 0; v < n; v++)
+		{
+			resolved[v] = g.insertVertex(this.vertices.get(v));
+			((IndexedAdjacency<V, E>) resolved[v].edges).ensureCapacity(degrees[v]);
+			if (this.directed)
+				((IndexedAdjacency<V, E>) resolved[v].incoming).ensureCapacity(inDegrees[v]);
+		}
+
+		for (int e = 0; e < this.edgeCount; e++)
+			g.connect(resolved[this.sources[e]], resolved[this.targets[e]], (E) this.weights[e]);
+
+		return g;
+	}
+
+	private void checkVertex(int id)
+	{
+		if (id < 0 || id >= this.vertices.size())
+			throw new IllegalArgumentException(String.format("No vertex with id %d.", id));
+	}
+
+	private void checkWeights(E[] weights, int count)
+	{
+		if (weights != null && weights.length != count)
+			throw new IllegalArgumentException("weights must hold one weight per edge.");
+	}
+
+	private void ensureEdgeCapacity(int capacity)
+	{
+		if (capacity <= this.sources.length)
+			return;
+
+		int grown = Math.max(capacity, this.sources.length * 2);
+		this.sources = Arrays.copyOf(this.sources, grown);
+		this.targets = Arrays.copyOf(this.targets, grown);
+		this.weights = Arrays.copyOf(this.weights, grown);
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+/**
+ * Receives every structural change made to a {@link Graph}. Listeners are
+ * called synchronously by the thread making the change; when a vertex is
+ * removed, each of its edges is reported removed before the vertex is.
+ * Listeners on a {@link ConcurrentGraph} may be called by several threads at
+ * once.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public interface GraphListener<V, E>
+{
+	void vertexAdded(Vertex<V, E> v);
+
+	void vertexRemoved(Vertex<V, E> v);
+
+	void edgeAdded(Edge<V, E> e);
+
+	void edgeRemoved(Edge<V, E> e);
+}
@@ -0,0 +1,310 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.*;
+
+/**
+ * An immutable point-in-time view of the vertices and edges of a
+ * {@link Graph}, taken with {@link Graph#snapshot()}. Successive snapshots
+ * share structure, so taking one costs nothing beyond the changes made since
+ * the last. Decorations are not versioned: a snapshot's vertices and edges
+ * are the graph's own and show their current decorations.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public final class GraphSnapshot<V, E> implements GraphView<V, E>
+{
+	private final PersistentMap<Vertex<V, E>, PersistentMap<Edge<V, E>, Edge<V, E>>> adjacency;
+	private final PersistentMap<Edge<V, E>, Edge<V, E>> edges;
+	private final long version;
+	private final boolean directed;
+
+	private GraphSnapshot(PersistentMap<Vertex<V, E>, PersistentMap<Edge<V, E>, Edge<V, E>>> adjacency,
+		PersistentMap<Edge<V, E>, Edge<V, E>> edges, long version, boolean directed)
+	{
+		this.adjacency = adjacency;
+		this.edges = edges;
+		this.version = version;
+		this.directed = directed;
+	}
+
+	static <V, E> GraphSnapshot<V, E> of(Collection<? extends Vertex<V, E>> vertices, Collection<? extends Edge<V, E>> edges,
+		boolean directed)
+	{
+		GraphSnapshot<V, E> s = new GraphSnapshot<V, E>(PersistentMap.<Vertex<V, E>, PersistentMap<Edge<V, E>, Edge<V, E>>>empty(),
+			PersistentMap.<Edge<V, E>, Edge<V, E>>empty(), 0, directed);
+
+		Iterator<? extends Vertex<V, E>> vi = vertices.iterator();
+		while (vi.hasNext())
+			s = s.withVertex(vi.next());
+
+		Iterator<? extends Edge<V, E>> ei = edges.iterator();
+		while (ei.hasNext())
+			s = s.withEdge(ei.next());
+
+		return new GraphSnapshot<V, E>(s.adjacency, s.edges, 0, directed);
+	}
+
+	GraphSnapshot<V, E> withVertex(Vertex<V, E> v)
+	{
+		if (this.adjacency.containsKey(v))
+			return this;
+
+		return new GraphSnapshot<V, E>(this.adjacency.put(v, PersistentMap.<Edge<V, E>, Edge<V, E>>empty()), this.edges,
+			this.version + 1, this.directed);
+	}
+
+	/**
+	 * Drops {@code v} only if it is the same instance that was added, so a
+	 * late removal of a vertex cannot drop an equal one added since.
+	 */
+	GraphSnapshot<V, E> withoutVertex(Vertex<V, E> v)
+	{
+		if (this.adjacency.getKey(v) != v)
+			return this;
+
+		return new GraphSnapshot<V, E>(this.adjacency.remove(v), this.edges, this.version + 1, this.directed);
+	}
+
+	GraphSnapshot<V, E> withEdge(Edge<V, E> e)
+	{
+		if (this.edges.containsKey(e))
+			return this;
+
+		PersistentMap<Vertex<V, E>, PersistentMap<Edge<V, E>, Edge<V, E>>> a = this.adjacency;
+		a = link(a, e.getSourceVertex(), e);
+		a = link(a, e.getTargetVertex(), e);
+
+		return new GraphSnapshot<V, E>(a, this.edges.put(e, e), this.version + 1, this.directed);
+	}
+
+	GraphSnapshot<V, E> withoutEdge(Edge<V, E> e)
+	{
+		if (!this.edges.containsKey(e))
+			return this;
+
+		PersistentMap<Vertex<V, E>, PersistentMap<Edge<V, E>, Edge<V, E>>> a = this.adjacency;
+		a = unlink(a, e.getSourceVertex(), e);
+		a = unlink(a, e.getTargetVertex(), e);
+
+		return new GraphSnapshot<V, E>(a, this.edges.remove(e), this.version + 1, this.directed);
+	}
+
+	private static <V, E> PersistentMap<Vertex<V, E>, PersistentMap<Edge<V, E>, Edge<V, E>>> link(
+		PersistentMap<Vertex<V, E>, PersistentMap<Edge<V, E>, Edge<V, E>>> a, Vertex<V, E> v, Edge<V, E> e)
+	{
+		PersistentMap<Edge<V, E>, Edge<V, E>> incident = a.get(v);
+		if (incident == null)
+			return a.put(v, PersistentMap.<Edge<V, E>, Edge<V, E>>empty().put(e, e));
+
+		return a.put(a.getKey(v), incident.put(e, e));
+	}
+
+	private static <V, E> PersistentMap<Vertex<V, E>, PersistentMap<Edge<V, E>, Edge<V, E>>> unlink(
+		PersistentMap<Vertex<V, E>, PersistentMap<Edge<V, E>, Edge<V, E>>> a, Vertex<V, E> v, Edge<V, E> e)
+	{
+		PersistentMap<Edge<V, E>, Edge<V, E>> incident = a.get(v);
+		if (incident == null)
+			return a;
+
+		return a.put(a.getKey(v), incident.remove(e));
+	}
+
+	/**
+	 * @return the number of changes made to the graph before this snapshot
+	 *         since snapshots were first taken.
+	 */
+	public long version()
+	{
+		return this.version;
+	}
+
+	public boolean containsEdge(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		if (v1 == null || v2 == null)
+			return false;
+
+		PersistentMap<Edge<V, E>, Edge<V, E>> incident = this.adjacency.get(v1);
+		if (incident == null)
+			return false;
+
+		Iterator<PersistentMap.Leaf<Edge<V, E>, Edge<V, E>>> i = incident.iterator();
+		while (i.hasNext())
+			if (joins(i.next().getKey(), v1, v2))
+				return true;
+
+		return false;
+	}
+
+	private static boolean joins(Edge<?, ?> e, Vertex<?, ?> v1, Vertex<?, ?> v2)
+	{
+		Vertex<?, ?> source = e.getSourceVertex(), target = e.getTargetVertex();
+		return (source.equals(v1) && target.equals(v2)) || (!e.isDirected() && source.equals(v2) && target.equals(v1));
+	}
+
+	public boolean containsEdge(Edge<V, E> e)
+	{
+		return e != null && this.edges.containsKey(e);
+	}
+
+	public boolean containsVertex(Vertex<V, E> v)
+	{
+		return v != null && this.adjacency.containsKey(v);
+	}
+
+	public Set<Edge<V, E>> edgeSet()
+	{
+		return new KeySet<Edge<V, E>>(this.edges);
+	}
+
+	public Set<Edge<V, E>> edgesOf(Vertex<V, E> vertex)
+	{
+		PersistentMap<Edge<V, E>, Edge<V, E>> incident = this.adjacency.get(vertex);
+		if (incident == null)
+			throw new IllegalArgumentException("vertex not found in snapshot.");
+
+		return new KeySet<Edge<V, E>>(incident);
+	}
+
+	public Set<Edge<V, E>> outgoingEdgesOf(Vertex<V, E> vertex)
+	{
+		return this.directed ? this.endsOf(vertex, true) : this.edgesOf(vertex);
+	}
+
+	public Set<Edge<V, E>> incomingEdgesOf(Vertex<V, E> vertex)
+	{
+		return this.directed ? this.endsOf(vertex, false) : this.edgesOf(vertex);
+	}
+
+	/**
+	 * @return the incident edges of {@code vertex} that leave it, or that
+	 *         lead to it if {@code outgoing} is false.
+	 */
+	private Set<Edge<V, E>> endsOf(Vertex<V, E> vertex, boolean outgoing)
+	{
+		HashSet<Edge<V, E>> found = new HashSet<Edge<V, E>>();
+		Iterator<Edge<V, E>> i = this.edgesOf(vertex).iterator();
+		while (i.hasNext())
+		{
+			Edge<V, E> e = i.next();
+			if ((outgoing ? e.getSourceVertex() : e.getTargetVertex()).equals(vertex))
+				found.add(e);
+		}
+
+		return Collections.unmodifiableSet(found);
+	}
+
+	public boolean isDirected()
+	{
+		return this.directed;
+	}
+
+	public CsrGraph<V, E> freeze()
+	{
+		return new CsrGraph<V, E>(this);
+	}
+
+	public Set<Edge<V, E>> getAllEdges(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		if (v1 == null || v2 == null)
+			return null;
+
+		PersistentMap<Edge<V, E>, Edge<V, E>> incident = this.adjacency.get(v1);
+		if (incident == null || !this.adjacency.containsKey(v2))
+			return null;
+
+		HashSet<Edge<V, E>> found = new HashSet<Edge<V, E>>();
+		Iterator<PersistentMap.Leaf<Edge<V, E>, Edge<V, E>>> i = incident.iterator();
+		while (i.hasNext())
+		{
+			Edge<V, E> e = i.next().getKey();
+			if (joins(e, v1, v2))
+				found.add(e);
+		}
+
+		return Collections.unmodifiableSet(found);
+	}
+
+	public Edge<V, E> getEdge(Vertex<V, E> v1, Vertex<V, E> v2)
+	{
+		if (v1 == null || v2 == null)
+			return null;
+
+		PersistentMap<Edge<V, E>, Edge<V, E>> incident = this.adjacency.get(v1);
+		if (incident == null)
+			return null;
+
+		Iterator<PersistentMap.Leaf<Edge<V, E>, Edge<V, E>>> i = incident.iterator();
+		while (i.hasNext())
+		{
+			Edge<V, E> e = i.next().getKey();
+			if (joins(e, v1, v2))
+				return e;
+		}
+
+		return null;
+	}
+
+	public Set<Vertex<V, E>> vertexSet()
+	{
+		return new KeySet<Vertex<V, E>>(this.adjacency);
+	}
+
+	/**
+	 * A read-only view of the keys of a persistent map.
+	 */
+	private static class KeySet<K> extends AbstractSet<K>
+	{
+		private final PersistentMap<K, ?> map;
+
+		KeySet(PersistentMap<K, ?> map)
+		{
+			this.map = map;
+		}
+
+		public boolean contains(Object o)
+		{
+			return o != null && this.map.containsKey(o);
+		}
+
+		public int size()
+		{
+			return this.map.size();
+		}
+
+		public Iterator<K> iterator()
+		{
+			final Iterator<? extends PersistentMap.Leaf<K, ?>> leaves = this.map.iterator();
+			return new Iterator<K>()
+			{
+				public boolean hasNext()
+				{
+					return leaves.hasNext();
+				}
+
+				public K next()
+				{
+					return leaves.next().getKey();
+				}
+
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+}
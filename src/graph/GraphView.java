@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.Set;
+
+/**
+ * The read-only operations shared by a {@link Graph} and its
+ * {@link GraphSnapshot}s.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public interface GraphView<V, E>
+{
+	boolean containsEdge(Vertex<V, E> v1, Vertex<V, E> v2);
+
+	boolean containsEdge(Edge<V, E> e);
+
+	boolean containsVertex(Vertex<V, E> v);
+
+	Set<Edge<V, E>> edgeSet();
+
+	Set<Edge<V, E>> edgesOf(Vertex<V, E> vertex);
+
+	Set<Edge<V, E>> outgoingEdgesOf(Vertex<V, E> vertex);
+
+	Set<Edge<V, E>> incomingEdgesOf(Vertex<V, E> vertex);
+
+	boolean isDirected();
+
+	CsrGraph<V, E> freeze();
+
+	Set<Edge<V, E>> getAllEdges(Vertex<V, E> v1, Vertex<V, E> v2);
+
+	Edge<V, E> getEdge(Vertex<V, E> v1, Vertex<V, E> v2);
+
+	Set<Vertex<V, E>> vertexSet();
+}
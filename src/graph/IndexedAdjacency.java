@@ -0,0 +1,428 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.*;
+
+/**
+ * The default {@link Adjacency}: edges are kept in a growable array and, once
+ * a vertex has more than {@link #INDEX_THRESHOLD} edges, indexed by the
+ * opposite vertex in an open-addressing table. Edges to the same opposite
+ * vertex are chained through a parallel {@code int} array, so adding,
+ * removing and looking up an edge are O(1) expected. Removal moves the last
+ * edge into the freed slot, so iteration order is not stable.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public class IndexedAdjacency<V, E> extends AbstractSet<Edge<V, E>> implements Adjacency<V, E>
+{
+	public static final int INDEX_THRESHOLD = 8;
+
+	private static final int NONE = -1;
+
+	private final Vertex<V, E> owner;
+
+	private Edge<V, E>[] edges;
+	private int size = 0;
+	private int modCount = 0;
+	private int selfLoops = 0;
+
+	// open-addressing index from opposite vertex to the head of its chain
+	private Object[] keys = null;
+	private int[] hashes;
+	private int[] heads;
+	private int[] next;
+	private int keyCount = 0;
+
+	public IndexedAdjacency(Vertex<V, E> owner)
+	{
+		this(owner, 4);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public IndexedAdjacency(Vertex<V, E> owner, int expectedDegree)
+	{
+		this.owner = owner;
+		this.edges = (Edge<V, E>[]) new Edge[Math.max(expectedDegree, 1)];
+		if (expectedDegree > INDEX_THRESHOLD)
+			this.buildIndex();
+	}
+
+	/**
+	 * Grows this set so that it can hold {@code degree} edges without
+	 * reallocating.
+	 */
+	public void ensureCapacity(int degree)
+	{
+		if (degree <= this.edges.length)
+			return;
+
+		this.edges = Arrays.copyOf(this.edges, degree);
+		if (this.next != null)
+			this.next = Arrays.copyOf(this.next, degree);
+
+		if (this.keys == null && degree > INDEX_THRESHOLD)
+			this.buildIndex();
+		else if (this.keys != null && degree * 2 > this.keys.length)
+			this.resizeIndex(Integer.highestOneBit(degree) * 4);
+	}
+
+	private Vertex<V, E> oppositeOf(Edge<V, E> e)
+	{
+		Vertex<V, E> source = e.getSourceVertex();
+		return (source == this.owner || source.equals(this.owner)) ? e.getTargetVertex() : source;
+	}
+
+	private static int hash(Object o)
+	{
+		int h = o.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private int findKey(Object opposite, int h)
+	{
+		int mask = this.keys.length - 1;
+		for (int i = h & mask; this.keys[i] != null; i = (i + 1) & mask)
+			if (this.hashes[i] == h && (this.keys[i] == opposite || this.keys[i].equals(opposite)))
+				return i;
+
+		return NONE;
+	}
+
+	private int insertKey(Object opposite, int h)
+	{
+		if ((this.keyCount + 1) * 2 > this.keys.length)
+			this.resizeIndex(this.keys.length * 2);
+
+		int mask = this.keys.length - 1;
+		int i = h & mask;
+		while (this.keys[i] != null)
+			i = (i + 1) & mask;
+
+		this.keys[i] = opposite;
+		this.hashes[i] = h;
+		this.heads[i] = NONE;
+		this.keyCount++;
+
+		return i;
+	}
+
+	private void deleteKey(int i)
+	{
+		int mask = this.keys.length - 1;
+		int j = i;
+		while (true)
+		{
+			j = (j + 1) & mask;
+			if (this.keys[j] == null)
+				break;
+
+			int k = this.hashes[j] & mask;
+			if ((i <= j) ? (i < k && k <= j) : (i < k || k <= j))
+				continue;
+
+			this.keys[i] = this.keys[j];
+			this.hashes[i] = this.hashes[j];
+			this.heads[i] = this.heads[j];
+			i = j;
+		}
+
+		this.keys[i] = null;
+		this.keyCount--;
+	}
+
+	private void buildIndex()
+	{
+		this.next = new int[this.edges.length];
+		this.resizeIndex(Integer.highestOneBit(Math.max(this.edges.length, INDEX_THRESHOLD)) * 4);
+	}
+
+	private void resizeIndex(int capacity)
+	{
+		this.keys = new Object[capacity];
+		this.hashes = new int[capacity];
+		this.heads = new int[capacity];
+		this.keyCount = 0;
+
+		for (int e = 0; e < this.size; e++)
+			this.link(e);
+	}
+
+	private void link(int e)
+	{
+		Vertex<V, E> opposite = this.oppositeOf(this.edges[e]);
+		int h = hash(opposite);
+		int slot = this.findKey(opposite, h);
+		if (slot == NONE)
+			slot = this.insertKey(opposite, h);
+
+		this.next[e] = this.heads[slot];
+		this.heads[slot] = e;
+	}
+
+	private int indexOf(Edge<V, E> e, Vertex<V, E> opposite)
+	{
+		if (this.keys == null)
+		{
+			for (int i = 0; i < this.size; i++)
+				if (this.edges[i].equals(e))
+					return i;
+			return NONE;
+		}
+
+		int slot = this.findKey(opposite, hash(opposite));
+		if (slot == NONE)
+			return NONE;
+
+		for (int i = this.heads[slot]; i != NONE; i = this.next[i])
+			if (this.edges[i].equals(e))
+				return i;
+
+		return NONE;
+	}
+
+	public boolean add(Edge<V, E> e)
+	{
+		Vertex<V, E> opposite = this.oppositeOf(e);
+		if (this.indexOf(e, opposite) != NONE)
+			return false;
+
+		this.append(e);
+		return true;
+	}
+
+	/**
+	 * Adds {@code e} without first checking whether an equal edge is already
+	 * in this set, for callers that have checked already.
+	 */
+	void append(Edge<V, E> e)
+	{
+		if (this.size == this.edges.length)
+		{
+			this.edges = Arrays.copyOf(this.edges, this.size * 2);
+			if (this.next != null)
+				this.next = Arrays.copyOf(this.next, this.size * 2);
+		}
+
+		this.edges[this.size] = e;
+		if (isSelfLoop(e))
+			this.selfLoops++;
+		if (this.keys != null)
+			this.link(this.size);
+		this.size++;
+		this.modCount++;
+
+		if (this.keys == null && this.size > INDEX_THRESHOLD)
+			this.buildIndex();
+	}
+
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object o)
+	{
+		if (!(o instanceof Edge<?, ?>))
+			return false;
+
+		Edge<V, E> e = (Edge<V, E>) o;
+		return e.isConnectedTo(this.owner) && this.indexOf(e, this.oppositeOf(e)) != NONE;
+	}
+
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object o)
+	{
+		if (!(o instanceof Edge<?, ?>))
+			return false;
+
+		Edge<V, E> e = (Edge<V, E>) o;
+		if (!e.isConnectedTo(this.owner))
+			return false;
+
+		Vertex<V, E> opposite = this.oppositeOf(e);
+		if (this.keys == null)
+		{
+			int i = this.indexOf(e, opposite);
+			if (i == NONE)
+				return false;
+
+			this.removeAt(i);
+			return true;
+		}
+
+		int slot = this.findKey(opposite, hash(opposite));
+		if (slot == NONE)
+			return false;
+
+		int prev = NONE;
+		for (int i = this.heads[slot]; i != NONE; prev = i, i = this.next[i])
+		{
+			if (!this.edges[i].equals(e))
+				continue;
+
+			if (prev == NONE)
+				this.heads[slot] = this.next[i];
+			else
+				this.next[prev] = this.next[i];
+
+			if (this.heads[slot] == NONE)
+				this.deleteKey(slot);
+
+			this.removeAt(i);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Removes the edge in slot {@code i}, which must already be unlinked from
+	 * the index, by moving the last edge into its place.
+	 */
+	private void removeAt(int i)
+	{
+		if (isSelfLoop(this.edges[i]))
+			this.selfLoops--;
+
+		int last = --this.size;
+		if (i != last)
+		{
+			if (this.keys != null)
+			{
+				Vertex<V, E> opposite = this.oppositeOf(this.edges[last]);
+				int slot = this.findKey(opposite, hash(opposite));
+				if (this.heads[slot] == last)
+					this.heads[slot] = i;
+				else
+				{
+					int j = this.heads[slot];
+					while (this.next[j] != last)
+						j = this.next[j];
+					this.next[j] = i;
+				}
+				this.next[i] = this.next[last];
+			}
+
+			this.edges[i] = this.edges[last];
+		}
+
+		this.edges[last] = null;
+		this.modCount++;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(this.edges, 0, this.size, null);
+		this.size = 0;
+		this.selfLoops = 0;
+		this.modCount++;
+
+		if (this.keys != null)
+		{
+			Arrays.fill(this.keys, null);
+			this.keyCount = 0;
+		}
+	}
+
+	public boolean connectsTo(Vertex<V, E> opposite)
+	{
+		if (this.keys != null)
+			return this.findKey(opposite, hash(opposite)) != NONE;
+
+		for (int i = 0; i < this.size; i++)
+			if (this.oppositeOf(this.edges[i]).equals(opposite))
+				return true;
+
+		return false;
+	}
+
+	private static boolean isSelfLoop(Edge<?, ?> e)
+	{
+		Vertex<?, ?> source = e.getSourceVertex();
+		return source == e.getTargetVertex() || source.equals(e.getTargetVertex());
+	}
+
+	/**
+	 * @return the number of edges in this set that lead back to its owner,
+	 *         counted as edges are added and removed.
+	 */
+	public int selfLoopCount()
+	{
+		return this.selfLoops;
+	}
+
+	public List<Edge<V, E>> edgesTo(Vertex<V, E> opposite)
+	{
+		ArrayList<Edge<V, E>> found = new ArrayList<Edge<V, E>>(1);
+		if (this.keys == null)
+		{
+			for (int i = 0; i < this.size; i++)
+				if (this.oppositeOf(this.edges[i]).equals(opposite))
+					found.add(this.edges[i]);
+			return found;
+		}
+
+		int slot = this.findKey(opposite, hash(opposite));
+		if (slot != NONE)
+			for (int i = this.heads[slot]; i != NONE; i = this.next[i])
+				found.add(this.edges[i]);
+
+		return found;
+	}
+
+	public int size()
+	{
+		return this.size;
+	}
+
+	public Iterator<Edge<V, E>> iterator()
+	{
+		return new AdjacencyIterator();
+	}
+
+	private class AdjacencyIterator implements Iterator<Edge<V, E>>
+	{
+		private int cursor = 0;
+		private int lastReturned = NONE;
+		private int expectedModCount = modCount;
+
+		public boolean hasNext()
+		{
+			return this.cursor < size;
+		}
+
+		public Edge<V, E> next()
+		{
+			if (modCount != this.expectedModCount)
+				throw new ConcurrentModificationException();
+			if (this.cursor >= size)
+				throw new NoSuchElementException();
+
+			this.lastReturned = this.cursor++;
+			return edges[this.lastReturned];
+		}
+
+		public void remove()
+		{
+			if (this.lastReturned == NONE)
+				throw new IllegalStateException();
+			if (modCount != this.expectedModCount)
+				throw new ConcurrentModificationException();
+
+			// the last edge is moved into the removed slot, so visit it next
+			IndexedAdjacency.this.remove(edges[this.lastReturned]);
+			this.cursor = this.lastReturned;
+			this.lastReturned = NONE;
+			this.expectedModCount = modCount;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+/**
+ * A graph whose vertices are numbered densely from {@code 0} to
+ * {@code vertexCount() - 1} and edges from {@code 0} to
+ * {@code edgeCount() - 1}. The arcs leaving vertex {@code v} are the indices
+ * {@code firstArc(v)} (inclusive) to {@code lastArc(v)} (exclusive).
+ * <p>
+ * The algorithms in {@code graph.util} that work on ids run against this
+ * interface, so they accept a {@link CsrGraph} or a {@link MappedGraph}
+ * alike.
+ */
+public interface IntGraph
+{
+	int vertexCount();
+
+	int edgeCount();
+
+	int arcCount();
+
+	int degree(int v);
+
+	int firstArc(int v);
+
+	int lastArc(int v);
+
+	int target(int arc);
+
+	int edgeId(int arc);
+
+	double weight(int arc);
+
+	/**
+	 * @return true if each edge gives a single arc leaving its source, false
+	 *         if it gives one arc leaving each endpoint.
+	 */
+	boolean isDirected();
+
+	/**
+	 * @return this graph with every arc reversed, so its arcs leaving
+	 *         {@code v} are the arcs entering {@code v} here; an undirected
+	 *         graph is its own transpose.
+	 */
+	IntGraph transpose();
+}
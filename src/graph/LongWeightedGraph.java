@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+/**
+ * A graph whose edge weights are stored as primitive {@code long}s in each
+ * edge rather than boxed, so comparing, hashing and freezing edges never
+ * unboxes.
+ *
+ * @param <V> The class that the Vertex value holds.
+ */
+public class LongWeightedGraph<V> extends Graph<V, Long>
+{
+	public LongWeightedGraph()
+	{
+		super();
+	}
+
+	public LongWeightedGraph(boolean directed)
+	{
+		super(directed);
+	}
+
+	public LongWeightedGraph(int expectedVertices, int expectedEdges)
+	{
+		super(expectedVertices, expectedEdges);
+	}
+
+	public LongWeightedGraph(int expectedVertices, int expectedEdges, boolean directed)
+	{
+		super(expectedVertices, expectedEdges, directed);
+	}
+
+	public Edge<V, Long> addEdge(Vertex<V, Long> v1, Vertex<V, Long> v2, long weight)
+	{
+		return this.addEdge(v1, v2, Long.valueOf(weight));
+	}
+
+	public Edge<V, Long> removeEdge(Vertex<V, Long> v1, Vertex<V, Long> v2, long weight)
+	{
+		return this.removeEdge(v1, v2, Long.valueOf(weight));
+	}
+
+	/**
+	 * @return the weight of {@code e}, which must be an edge of this graph.
+	 */
+	public long weight(Edge<V, Long> e)
+	{
+		return ((LongEdge) e).primitiveWeight;
+	}
+
+	protected IntrusiveEdge createEdge(Vertex<V, Long> source, Vertex<V, Long> target, Long weight)
+	{
+		if (weight == null)
+			throw new NullPointerException("Weight cannot be null");
+
+		return new LongEdge(source, target, weight.longValue());
+	}
+
+	public class LongEdge extends IntrusiveEdge implements PrimitiveWeighted
+	{
+		private final long primitiveWeight;
+
+		LongEdge(Vertex<V, Long> vertex1, Vertex<V, Long> vertex2, long newWeight)
+		{
+			super(vertex1, vertex2);
+			this.primitiveWeight = newWeight;
+		}
+
+		public long longWeight()
+		{
+			return this.primitiveWeight;
+		}
+
+		/**
+		 * @return the weight as a {@code double}, which is exact up to
+		 *         2<sup>53</sup>.
+		 */
+		public double doubleWeight()
+		{
+			return this.primitiveWeight;
+		}
+
+		public Long getWeight()
+		{
+			return Long.valueOf(this.primitiveWeight);
+		}
+
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof LongWeightedGraph<?>.LongEdge))
+				return super.equals(o);
+
+			return this.primitiveWeight == ((LongWeightedGraph<?>.LongEdge) o).primitiveWeight
+				&& this.sameEndpoints((Edge<?, ?>) o);
+		}
+
+		public int hashCode()
+		{
+			return pairHash(this.sourceVertex, this.targetVertex) + Long.hashCode(this.primitiveWeight);
+		}
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * An {@link IntGraph} whose arrays live in a memory-mapped file rather than
+ * on the heap. The operating system's page cache holds the data, so a graph
+ * larger than the heap can be traversed, and opening a saved graph is a map
+ * rather than a rebuild.
+ * <p>
+ * Only structure and weights are stored; callers that need vertex or edge
+ * values keep them alongside, indexed by id. A file is written once with
+ * {@link #write(IntGraph, File)} and is read-only afterwards. A directed graph
+ * is saved with its transpose, so both directions are mapped.
+ */
+public final class MappedGraph implements IntGraph
+{
+	private static final int MAGIC = 0x47524150; // "GRAP"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 32;
+	private static final int DIRECTED = 1;
+
+	// each section is mapped in chunks of 1 GB, the largest power of two a
+	// single buffer can hold
+	private static final int CHUNK_SHIFT = 30;
+	private static final int INT_SHIFT = CHUNK_SHIFT - 2;
+	private static final int INT_MASK = (1 << INT_SHIFT) - 1;
+	private static final int DOUBLE_SHIFT = CHUNK_SHIFT - 3;
+	private static final int DOUBLE_MASK = (1 << DOUBLE_SHIFT) - 1;
+
+	private final int vertexCount;
+	private final int edgeCount;
+	private final int arcCount;
+	private final boolean directed;
+
+	private final ByteBuffer[] offsets;
+	private final ByteBuffer[] targets;
+	private final ByteBuffer[] arcEdges;
+	private final ByteBuffer[] arcWeights;
+
+	private MappedGraph transposed;
+
+	/**
+	 * Maps the four sections of one direction starting at {@code pos[0]},
+	 * leaving {@code pos[0]} just past them.
+	 */
+	private MappedGraph(FileChannel channel, long[] pos, int vertexCount, int edgeCount, int arcCount, boolean directed)
+		throws IOException
+	{
+		this.vertexCount = vertexCount;
+		this.edgeCount = edgeCount;
+		this.arcCount = arcCount;
+		this.directed = directed;
+
+		this.offsets = map(channel, pos, (vertexCount + 1) * 4L);
+		this.targets = map(channel, pos, arcCount * 4L);
+		this.arcEdges = map(channel, pos, arcCount * 4L);
+		this.arcWeights = map(channel, pos, arcCount * 8L);
+	}
+
+	/**
+	 * Maps a saved graph. The file stays mapped until this object is garbage
+	 * collected.
+	 */
+	public static MappedGraph open(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining())
+				if (channel.read(header, header.position()) < 0)
+					throw new IOException("truncated graph header.");
+			header.flip();
+
+			if (header.getInt() != MAGIC)
+				throw new IOException("not a mapped graph file.");
+			if (header.getInt() != VERSION)
+				throw new IOException("unsupported mapped graph version.");
+
+			int n = header.getInt(), m = header.getInt(), arcs = header.getInt();
+			boolean directed = (header.getInt() & DIRECTED) != 0;
+
+			long[] pos = { HEADER_BYTES };
+			MappedGraph g = new MappedGraph(channel, pos, n, m, arcs, directed);
+			if (directed)
+			{
+				g.transposed = new MappedGraph(channel, pos, n, m, arcs, true);
+				g.transposed.transposed = g;
+			}
+			else
+				g.transposed = g;
+
+			return g;
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	/**
+	 * Saves {@code g} in the format read by {@link #open(File)}, replacing
+	 * {@code file} if it exists.
+	 */
+	public static void write(IntGraph g, File file) throws IOException
+	{
+		int n = g.vertexCount();
+		int arcs = g.arcCount();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try
+		{
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			ByteBuffer out = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+			out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(g.edgeCount()).putInt(arcs);
+			out.putInt(g.isDirected() ? DIRECTED : 0);
+			pad(out, HEADER_BYTES - 24);
+
+			writeSections(channel, out, g);
+			if (g.isDirected())
+				writeSections(channel, out, g.transpose());
+
+			out.flip();
+			while (out.hasRemaining())
+				channel.write(out);
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	private static void writeSections(FileChannel channel, ByteBuffer out, IntGraph g) throws IOException
+	{
+		int n = g.vertexCount();
+		int arcs = g.arcCount();
+
+		for (int v = 0; v < n; v++)
+		{
+			drain(channel, out);
+			out.putInt(g.firstArc(v));
+		}
+		drain(channel, out);
+		out.putInt(arcs);
+		pad(out, (int) (align((n + 1) * 4L) - (n + 1) * 4L));
+
+		for (int a = 0; a < arcs; a++)
+		{
+			drain(channel, out);
+			out.putInt(g.target(a));
+		}
+		pad(out, (int) (align(arcs * 4L) - arcs * 4L));
+
+		for (int a = 0; a < arcs; a++)
+		{
+			drain(channel, out);
+			out.putInt(g.edgeId(a));
+		}
+		pad(out, (int) (align(arcs * 4L) - arcs * 4L));
+
+		for (int a = 0; a < arcs; a++)
+		{
+			drain(channel, out);
+			out.putDouble(g.weight(a));
+		}
+	}
+
+	/**
+	 * Writes out the buffer once it cannot take another {@code long}.
+	 */
+	private static void drain(FileChannel channel, ByteBuffer out) throws IOException
+	{
+		if (out.remaining() >= 8)
+			return;
+
+		out.flip();
+		while (out.hasRemaining())
+			channel.write(out);
+		out.clear();
+	}
+
+	private static void pad(ByteBuffer out, int bytes)
+	{
+		// the buffer is drained before every put, so padding always fits
+		for (int i = 0; i < bytes; i++)
+			out.put((byte) 0);
+	}
+
+	private static long align(long pos)
+	{
+		return (pos + 7) & ~7L;
+	}
+
+	/**
+	 * Maps {@code bytes} bytes at {@code pos[0]} and advances it past them to
+	 * the next 8 byte boundary.
+	 */
+	private static ByteBuffer[] map(FileChannel channel, long[] pos, long bytes) throws IOException
+	{
+		long chunk = 1L << CHUNK_SHIFT;
+		ByteBuffer[] chunks = new ByteBuffer[(int) ((bytes + chunk - 1) >>> CHUNK_SHIFT)];
+		for (int i = 0; i < chunks.length; i++)
+		{
+			long size = Math.min(chunk, bytes - i * chunk);
+			chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, pos[0] + i * chunk, size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		pos[0] = align(pos[0] + bytes);
+		return chunks;
+	}
+
+	private static int getInt(ByteBuffer[] chunks, int i)
+	{
+		return chunks[i >>> INT_SHIFT].getInt((i & INT_MASK) << 2);
+	}
+
+	public boolean isDirected()
+	{
+		return this.directed;
+	}
+
+	public MappedGraph transpose()
+	{
+		return this.transposed;
+	}
+
+	public int vertexCount()
+	{
+		return this.vertexCount;
+	}
+
+	public int edgeCount()
+	{
+		return this.edgeCount;
+	}
+
+	public int arcCount()
+	{
+		return this.arcCount;
+	}
+
+	public int degree(int v)
+	{
+		return getInt(this.offsets, v + 1) - getInt(this.offsets, v);
+	}
+
+	public int firstArc(int v)
+	{
+		return getInt(this.offsets, v);
+	}
+
+	public int lastArc(int v)
+	{
+		return getInt(this.offsets, v + 1);
+	}
+
+	public int target(int arc)
+	{
+		return getInt(this.targets, arc);
+	}
+
+	public int edgeId(int arc)
+	{
+		return getInt(this.arcEdges, arc);
+	}
+
+	public double weight(int arc)
+	{
+		return this.arcWeights[arc >>> DOUBLE_SHIFT].getDouble((arc & DOUBLE_MASK) << 3);
+	}
+}
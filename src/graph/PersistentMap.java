@@ -0,0 +1,432 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.*;
+
+/**
+ * An immutable hash array mapped trie. {@link #put} and {@link #remove}
+ * return a new map that shares every node off the path to the changed key
+ * with this one, so each update copies O(log n) small arrays.
+ */
+final class PersistentMap<K, V> implements Iterable<PersistentMap.Leaf<K, V>>
+{
+	private static final int BITS = 5;
+
+	@SuppressWarnings("rawtypes")
+	private static final PersistentMap EMPTY = new PersistentMap(new BitmapNode(0, new Object[0]), 0);
+
+	private final Node root;
+	private final int size;
+
+	private PersistentMap(Node root, int size)
+	{
+		this.root = root;
+		this.size = size;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentMap<K, V> empty()
+	{
+		return (PersistentMap<K, V>) EMPTY;
+	}
+
+	private static int hash(Object key)
+	{
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	public int size()
+	{
+		return this.size;
+	}
+
+	public boolean isEmpty()
+	{
+		return this.size == 0;
+	}
+
+	public boolean containsKey(Object key)
+	{
+		return this.root.find(key, hash(key), 0) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(Object key)
+	{
+		Leaf<?, ?> leaf = this.root.find(key, hash(key), 0);
+		return (leaf == null) ? null : (V) leaf.value;
+	}
+
+	/**
+	 * @return the key instance stored for {@code key}, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	public K getKey(Object key)
+	{
+		Leaf<?, ?> leaf = this.root.find(key, hash(key), 0);
+		return (leaf == null) ? null : (K) leaf.key;
+	}
+
+	public PersistentMap<K, V> put(K key, V value)
+	{
+		int[] added = { 0 };
+		Node newRoot = this.root.put(new Leaf<K, V>(key, value, hash(key)), 0, added);
+		return (newRoot == this.root) ? this : new PersistentMap<K, V>(newRoot, this.size + added[0]);
+	}
+
+	public PersistentMap<K, V> remove(Object key)
+	{
+		Node newRoot = this.root.remove(key, hash(key), 0);
+		if (newRoot == this.root)
+			return this;
+		if (newRoot == null)
+			return empty();
+
+		return new PersistentMap<K, V>(newRoot, this.size - 1);
+	}
+
+	public Iterator<Leaf<K, V>> iterator()
+	{
+		return new TrieIterator<K, V>(this.root);
+	}
+
+	public static final class Leaf<K, V>
+	{
+		final K key;
+		final V value;
+		final int hash;
+
+		Leaf(K key, V value, int hash)
+		{
+			this.key = key;
+			this.value = value;
+			this.hash = hash;
+		}
+
+		public K getKey()
+		{
+			return this.key;
+		}
+
+		public V getValue()
+		{
+			return this.value;
+		}
+
+		boolean matches(Object k, int h)
+		{
+			return this.hash == h && (this.key == k || this.key.equals(k));
+		}
+	}
+
+	private static abstract class Node
+	{
+		abstract Leaf<?, ?> find(Object key, int hash, int shift);
+
+		abstract Node put(Leaf<?, ?> leaf, int shift, int[] added);
+
+		/**
+		 * @return the node without {@code key}, this node if it did not hold
+		 *         {@code key}, or null if the node is now empty.
+		 */
+		abstract Node remove(Object key, int hash, int shift);
+
+		abstract int slotCount();
+
+		abstract Object slot(int i);
+	}
+
+	private static final class BitmapNode extends Node
+	{
+		private final int bitmap;
+		private final Object[] slots;
+
+		BitmapNode(int bitmap, Object[] slots)
+		{
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		private static int bit(int hash, int shift)
+		{
+			return 1 << ((hash >>> shift) & 31);
+		}
+
+		private int index(int bit)
+		{
+			return Integer.bitCount(this.bitmap & (bit - 1));
+		}
+
+		Leaf<?, ?> find(Object key, int hash, int shift)
+		{
+			int bit = bit(hash, shift);
+			if ((this.bitmap & bit) == 0)
+				return null;
+
+			Object slot = this.slots[this.index(bit)];
+			if (slot instanceof Leaf<?, ?>)
+				return ((Leaf<?, ?>) slot).matches(key, hash) ? (Leaf<?, ?>) slot : null;
+
+			return ((Node) slot).find(key, hash, shift + BITS);
+		}
+
+		Node put(Leaf<?, ?> leaf, int shift, int[] added)
+		{
+			int bit = bit(leaf.hash, shift);
+			int i = this.index(bit);
+
+			if ((this.bitmap & bit) == 0)
+			{
+				Object[] grown = new Object[this.slots.length + 1];
+				System.arraycopy(this.slots, 0, grown, 0, i);
+				grown[i] = leaf;
+				System.arraycopy(this.slots, i, grown, i + 1, this.slots.length - i);
+				added[0] = 1;
+				return new BitmapNode(this.bitmap | bit, grown);
+			}
+
+			Object slot = this.slots[i];
+			Object replacement;
+			if (slot instanceof Leaf<?, ?>)
+			{
+				Leaf<?, ?> existing = (Leaf<?, ?>) slot;
+				if (existing.matches(leaf.key, leaf.hash))
+				{
+					if (existing.value == leaf.value)
+						return this;
+					replacement = new Leaf<Object, Object>(existing.key, leaf.value, leaf.hash);
+				}
+				else
+				{
+					replacement = merge(existing, leaf, shift + BITS);
+					added[0] = 1;
+				}
+			}
+			else
+			{
+				replacement = ((Node) slot).put(leaf, shift + BITS, added);
+				if (replacement == slot)
+					return this;
+			}
+
+			Object[] copy = this.slots.clone();
+			copy[i] = replacement;
+			return new BitmapNode(this.bitmap, copy);
+		}
+
+		private static Node merge(Leaf<?, ?> a, Leaf<?, ?> b, int shift)
+		{
+			if (a.hash == b.hash || shift >= 32)
+				return new CollisionNode(a.hash, new Leaf<?, ?>[] { a, b });
+
+			int bitA = bit(a.hash, shift), bitB = bit(b.hash, shift);
+			if (bitA == bitB)
+				return new BitmapNode(bitA, new Object[] { merge(a, b, shift + BITS) });
+
+			boolean aFirst = ((a.hash >>> shift) & 31) < ((b.hash >>> shift) & 31);
+			return new BitmapNode(bitA | bitB, aFirst ? new Object[] { a, b } : new Object[] { b, a });
+		}
+
+		Node remove(Object key, int hash, int shift)
+		{
+			int bit = bit(hash, shift);
+			if ((this.bitmap & bit) == 0)
+				return this;
+
+			int i = this.index(bit);
+			Object slot = this.slots[i];
+			Object replacement;
+			if (slot instanceof Leaf<?, ?>)
+			{
+				if (!((Leaf<?, ?>) slot).matches(key, hash))
+					return this;
+				replacement = null;
+			}
+			else
+			{
+				replacement = ((Node) slot).remove(key, hash, shift + BITS);
+				if (replacement == slot)
+					return this;
+			}
+
+			if (replacement != null)
+			{
+				Object[] copy = this.slots.clone();
+				copy[i] = replacement;
+				return new BitmapNode(this.bitmap, copy);
+			}
+
+			if (this.slots.length == 1)
+				return null;
+
+			Object[] shrunk = new Object[this.slots.length - 1];
+			System.arraycopy(this.slots, 0, shrunk, 0, i);
+			System.arraycopy(this.slots, i + 1, shrunk, i, this.slots.length - i - 1);
+			return new BitmapNode(this.bitmap & ~bit, shrunk);
+		}
+
+		int slotCount()
+		{
+			return this.slots.length;
+		}
+
+		Object slot(int i)
+		{
+			return this.slots[i];
+		}
+	}
+
+	/**
+	 * Holds leaves whose keys have identical hashes.
+	 */
+	private static final class CollisionNode extends Node
+	{
+		private final int hash;
+		private final Leaf<?, ?>[] leaves;
+
+		CollisionNode(int hash, Leaf<?, ?>[] leaves)
+		{
+			this.hash = hash;
+			this.leaves = leaves;
+		}
+
+		Leaf<?, ?> find(Object key, int hash, int shift)
+		{
+			for (int i = 0; i < this.leaves.length; i++)
+				if (this.leaves[i].matches(key, hash))
+					return this.leaves[i];
+
+			return null;
+		}
+
+		Node put(Leaf<?, ?> leaf, int shift, int[] added)
+		{
+			if (leaf.hash != this.hash)
+			{
+				// a different hash sharing this node's prefix: split above it
+				int bit = BitmapNode.bit(this.hash, shift);
+				return new BitmapNode(bit, new Object[] { this }).put(leaf, shift, added);
+			}
+
+			for (int i = 0; i < this.leaves.length; i++)
+			{
+				if (this.leaves[i].matches(leaf.key, leaf.hash))
+				{
+					if (this.leaves[i].value == leaf.value)
+						return this;
+
+					Leaf<?, ?>[] copy = this.leaves.clone();
+					copy[i] = new Leaf<Object, Object>(this.leaves[i].key, leaf.value, leaf.hash);
+					return new CollisionNode(this.hash, copy);
+				}
+			}
+
+			Leaf<?, ?>[] grown = Arrays.copyOf(this.leaves, this.leaves.length + 1);
+			grown[this.leaves.length] = leaf;
+			added[0] = 1;
+			return new CollisionNode(this.hash, grown);
+		}
+
+		Node remove(Object key, int hash, int shift)
+		{
+			for (int i = 0; i < this.leaves.length; i++)
+			{
+				if (!this.leaves[i].matches(key, hash))
+					continue;
+
+				if (this.leaves.length == 1)
+					return null;
+
+				Leaf<?, ?>[] shrunk = new Leaf<?, ?>[this.leaves.length - 1];
+				System.arraycopy(this.leaves, 0, shrunk, 0, i);
+				System.arraycopy(this.leaves, i + 1, shrunk, i, this.leaves.length - i - 1);
+				return new CollisionNode(this.hash, shrunk);
+			}
+
+			return this;
+		}
+
+		int slotCount()
+		{
+			return this.leaves.length;
+		}
+
+		Object slot(int i)
+		{
+			return this.leaves[i];
+		}
+	}
+
+	private static final class TrieIterator<K, V> implements Iterator<Leaf<K, V>>
+	{
+		private final Node[] nodes = new Node[16];
+		private final int[] positions = new int[16];
+		private int depth = 0;
+		private Leaf<K, V> next;
+
+		TrieIterator(Node root)
+		{
+			this.nodes[0] = root;
+			this.advance();
+		}
+
+		@SuppressWarnings("unchecked")
+		private void advance()
+		{
+			this.next = null;
+			while (this.depth >= 0)
+			{
+				Node node = this.nodes[this.depth];
+				if (this.positions[this.depth] == node.slotCount())
+				{
+					this.depth--;
+					continue;
+				}
+
+				Object slot = node.slot(this.positions[this.depth]++);
+				if (slot instanceof Leaf<?, ?>)
+				{
+					this.next = (Leaf<K, V>) slot;
+					return;
+				}
+
+				this.depth++;
+				this.nodes[this.depth] = (Node) slot;
+				this.positions[this.depth] = 0;
+			}
+		}
+
+		public boolean hasNext()
+		{
+			return this.next != null;
+		}
+
+		public Leaf<K, V> next()
+		{
+			if (this.next == null)
+				throw new NoSuchElementException();
+
+			Leaf<K, V> current = this.next;
+			this.advance();
+			return current;
+		}
+
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the latest {@link GraphSnapshot} of a graph up to date as it changes.
+ * Each change is applied with a compare-and-set, so readers always see a
+ * snapshot that reflects a whole number of changes.
+ */
+class SnapshotTracker<V, E> implements GraphListener<V, E>
+{
+	private final AtomicReference<GraphSnapshot<V, E>> current;
+
+	SnapshotTracker(GraphSnapshot<V, E> initial)
+	{
+		this.current = new AtomicReference<GraphSnapshot<V, E>>(initial);
+	}
+
+	GraphSnapshot<V, E> current()
+	{
+		return this.current.get();
+	}
+
+	public void vertexAdded(Vertex<V, E> v)
+	{
+		GraphSnapshot<V, E> s, next;
+		do
+		{
+			s = this.current.get();
+			next = s.withVertex(v);
+		}
+		while (next != s && !this.current.compareAndSet(s, next));
+	}
+
+	public void vertexRemoved(Vertex<V, E> v)
+	{
+		GraphSnapshot<V, E> s, next;
+		do
+		{
+			s = this.current.get();
+			next = s.withoutVertex(v);
+		}
+		while (next != s && !this.current.compareAndSet(s, next));
+	}
+
+	public void edgeAdded(Edge<V, E> e)
+	{
+		GraphSnapshot<V, E> s, next;
+		do
+		{
+			s = this.current.get();
+			next = s.withEdge(e);
+		}
+		while (next != s && !this.current.compareAndSet(s, next));
+	}
+
+	public void edgeRemoved(Edge<V, E> e)
+	{
+		GraphSnapshot<V, E> s, next;
+		do
+		{
+			s = this.current.get();
+			next = s.withoutEdge(e);
+		}
+		while (next != s && !this.current.compareAndSet(s, next));
+	}
+}
@@ -13,8 +13,6 @@
  */
 package graph;
 
-import graph.decorations.ReadDecorations;
-
 import java.util.*;
 
 /**
@@ -24,84 +22,124 @@ import java.util.*;
  * @param <V> The class that the Vertex value holds.
  * @param <E> The class that the Edge value holds.
  */
-public class Vertex<V, E> implements ReadDecorations
+public class Vertex<V, E> extends Decorated
 {
-	protected HashMap<Object, Object> decorations = new HashMap<Object, Object>();
-    protected TreeSet<Edge<V, E>> edges;
+    protected V value;
+    protected Adjacency<V, E> edges;
+
+    /** The edges leading here, kept apart from {@link #edges} only in a directed graph. */
+    protected Adjacency<V, E> incoming = null;
 
     public Vertex()
     {
-    	this.decorations.put("value", null);
+    	this.value = null;
     	this.edges = null;
     }
 
     public Vertex(V newValue)
     {
-    	this.decorations.put("value", newValue);
-    	this.edges = new TreeSet<Edge<V, E>>();
+    	this.value = newValue;
+    	this.edges = new IndexedAdjacency<V, E>(this);
     }
 
-    public Vertex(V newValue, TreeSet<Edge<V, E>> newEdges)
+    public Vertex(V newValue, Adjacency<V, E> newEdges)
     {
-    	this.decorations.put("value", newValue);
+    	this.value = newValue;
         this.edges = newEdges;
     }
     
-    public Vertex(V newValue, TreeSet<Edge<V, E>> newEdges, HashMap<Object, Object> newDecorations)
+    public Vertex(V newValue, Adjacency<V, E> newEdges, HashMap<Object, Object> newDecorations)
     {
-    	this.decorations = newDecorations;
-    	this.decorations.put("value", newValue);
+    	super(newDecorations);
+    	this.value = newValue;
         this.edges = newEdges;
     }
 
     public Vertex(Vertex<V, E> v)
     {
-        this.decorations = v.decorations;
+        super(v.sharedDecorations());
+        this.value = v.value;
         this.edges = v.edges;
+        this.incoming = v.incoming;
     }
 
     public int degree()
     {
-    	return edges.size();
+    	if (this.incoming == null)
+    		return edges.size();
+
+    	return this.edges.size() + this.incoming.size() - this.selfLoops();
+    }
+
+    /**
+     * @return the number of self loops, which a directed vertex holds in
+     *         both its outgoing and incoming edges.
+     */
+    private int selfLoops()
+    {
+    	if (this.edges instanceof IndexedAdjacency<?, ?>)
+    		return ((IndexedAdjacency<?, ?>) this.edges).selfLoopCount();
+
+    	return this.edges.edgesTo(this).size();
     }
 
     public boolean equals(Object o)
     {
-        if (o instanceof Vertex<?, ?>)
+        if (this == o)
+            return true;
+        else if (o instanceof Vertex<?, ?>)
             return this.getValue().equals(((Vertex<?, ?>) o).getValue());
         else
             return false;
     }
 
+    /**
+     * @return every edge incident to this vertex.
+     */
     public Set<Edge<V, E>> edgesOf()
+    {
+    	if (this.incoming == null)
+    		return Collections.unmodifiableSet(this.edges);
+
+    	return new IncidentEdges();
+    }
+
+    /**
+     * @return the edges leaving this vertex, which are all of its edges in an
+     *         undirected graph.
+     */
+    public Set<Edge<V, E>> outgoingEdgesOf()
     {
     	return Collections.unmodifiableSet(this.edges);
     }
 
-    public HashMap<Object, Object> decorations()
+    /**
+     * @return the edges leading to this vertex, which are all of its edges in
+     *         an undirected graph.
+     */
+    public Set<Edge<V, E>> incomingEdgesOf()
     {
-    	return this.decorations;
+    	return Collections.unmodifiableSet((this.incoming == null) ? this.edges : this.incoming);
     }
 
-    public Object get(Object key)
+    String fieldKey()
     {
-    	return this.decorations.get(key);
+    	return "value";
     }
 
-    @SuppressWarnings("unchecked")
-	public V getValue()
+    Object fieldValue()
     {
-        return (V) this.decorations.get("value");
+    	return this.value;
     }
 
-    public int hashCode()
+	public V getValue()
     {
-        return this.getValue().hashCode();
+        return this.value;
     }
 
-    public boolean hasDecorations()
+    public int hashCode()
     {
-    	return !this.decorations.isEmpty();
+        return this.getValue().hashCode();
     }
 
     public String toString()
@@ -109,4 +147,70 @@ public class Vertex<V, E> implements ReadDecorations
         return this.getValue().toString();
     }
 
-}
\ No newline at end of file
+    /**
+     * The outgoing and then the incoming edges of a directed vertex, skipping
+     * incoming self loops since they were already seen as outgoing.
+     */
+    private class IncidentEdges extends AbstractSet<Edge<V, E>>
+    {
+    	public boolean contains(Object o)
+    	{
+    		return edges.contains(o) || incoming.contains(o);
+    	}
+
+    	public int size()
+    	{
+    		return degree();
+    	}
+
+    	public Iterator<Edge<V, E>> iterator()
+    	{
+    		return new Iterator<Edge<V, E>>()
+    		{
+    			private Iterator<Edge<V, E>> current = edges.iterator();
+    			private boolean inbound = false;
+    			private Edge<V, E> next = this.advance();
+
+    			private Edge<V, E> advance()
+    			{
+    				while (true)
+    				{
+    					if (this.current.hasNext())
+    					{
+    						Edge<V, E> e = this.current.next();
+    						if (!this.inbound || !e.getSourceVertex().equals(Vertex.this))
+    							return e;
+    					}
+    					else if (!this.inbound)
+    					{
+    						this.current = incoming.iterator();
+    						this.inbound = true;
+    					}
+    					else
+    						return null;
+    				}
+    			}
+
+    			public boolean hasNext()
+    			{
+    				return this.next != null;
+    			}
+
+    			public Edge<V, E> next()
+    			{
+    				if (this.next == null)
+    					throw new NoSuchElementException();
+
+    				Edge<V, E> e = this.next;
+    				this.next = this.advance();
+    				return e;
+    			}
+
+    			public void remove()
+    			{
+    				throw new UnsupportedOperationException();
+    			}
+    		};
+    	}
+    }
+}
@@ -19,7 +19,11 @@ public interface Decorable
 {
 	Object get(Object key);
 
+	<T> T get(DecorationKey<T> key);
+
 	void put(Object key, Object value);
 
+	<T> void put(DecorationKey<T> key, T value);
+
 	HashMap<Object, Object> decorations();
 }
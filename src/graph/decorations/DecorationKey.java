@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.decorations;
+
+/**
+ * A typed decoration name. Keys made with {@link #doubleKey}, {@link #longKey}
+ * or {@link #intKey} are stored in primitive columns of a
+ * {@link DecorationStore}, so reading them with the matching primitive getter
+ * never boxes.
+ * <p>
+ * Two keys with the same name name the same decoration, and an untyped
+ * {@code put(name, value)} writes to it as well. Within a graph the first key
+ * to write a decoration fixes how it is stored, and a key or value that does
+ * not fit is rejected; see {@link DecorationStore}.
+ *
+ * @param <T> The class of the decoration's values.
+ */
+public final class DecorationKey<T>
+{
+	static final int OBJECT = 0;
+	static final int DOUBLE = 1;
+	static final int LONG = 2;
+	static final int INT = 3;
+
+	private final String name;
+	private final Class<T> type;
+	private final int kind;
+
+	private DecorationKey(String name, Class<T> type, int kind)
+	{
+		if (name == null || type == null)
+			throw new NullPointerException("Parameters cannot be null");
+
+		this.name = name;
+		this.type = type;
+		this.kind = kind;
+	}
+
+	public static <T> DecorationKey<T> of(String name, Class<T> type)
+	{
+		return new DecorationKey<T>(name, type, OBJECT);
+	}
+
+	public static DecorationKey<Double> doubleKey(String name)
+	{
+		return new DecorationKey<Double>(name, Double.class, DOUBLE);
+	}
+
+	public static DecorationKey<Long> longKey(String name)
+	{
+		return new DecorationKey<Long>(name, Long.class, LONG);
+	}
+
+	public static DecorationKey<Integer> intKey(String name)
+	{
+		return new DecorationKey<Integer>(name, Integer.class, INT);
+	}
+
+	public String name()
+	{
+		return this.name;
+	}
+
+	public Class<T> type()
+	{
+		return this.type;
+	}
+
+	int kind()
+	{
+		return this.kind;
+	}
+
+	/**
+	 * @return {@code value} as this key's type.
+	 * @throws IllegalArgumentException if {@code value} is not null and not
+	 *             of this key's type.
+	 */
+	public T cast(Object value)
+	{
+		if (value != null && !this.type.isInstance(value))
+			throw new IllegalArgumentException(String.format("Decoration \"%s\" holds a %s, not a %s.", this.name,
+				value.getClass().getSimpleName(), this.type.getSimpleName()));
+
+		return this.type.cast(value);
+	}
+
+	public boolean equals(Object o)
+	{
+		if (this == o)
+			return true;
+		if (!(o instanceof DecorationKey<?>))
+			return false;
+
+		DecorationKey<?> k = (DecorationKey<?>) o;
+		return this.name.equals(k.name) && this.type == k.type;
+	}
+
+	public int hashCode()
+	{
+		return this.name.hashCode();
+	}
+
+	public String toString()
+	{
+		return this.name;
+	}
+}
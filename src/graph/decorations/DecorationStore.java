@@ -0,0 +1,442 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.decorations;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column-oriented storage for the decorations of every vertex or every edge
+ * of a graph. Each element owns a row, and each decoration name owns a column
+ * holding one entry per row, so an element costs a row number rather than a
+ * map of its own, and reading one decoration across all elements walks a
+ * single array.
+ * <p>
+ * A decoration's column takes its kind from the first key to write it, and
+ * any key may use an object column. A primitive key of another primitive
+ * kind, a typed read of a value that is not of the key's type, or a value
+ * that is not a {@link Number} put into a primitive column is rejected with
+ * an {@link IllegalArgumentException}. Numbers put into a primitive column
+ * are converted.
+ * <p>
+ * Rows are allocated and freed under the store's lock, and each column is
+ * written under its own, so elements may be added and removed from several
+ * threads at once.
+ */
+public class DecorationStore
+{
+	private final ConcurrentHashMap<Object, Column> columns = new ConcurrentHashMap<Object, Column>();
+
+	private int[] freeRows = new int[16];
+	private int freeCount = 0;
+	private int rowCount = 0;
+	private int size = 0;
+
+	/**
+	 * @return a new empty row.
+	 */
+	public synchronized int allocate()
+	{
+		this.size++;
+		if (this.freeCount > 0)
+			return this.freeRows[--this.freeCount];
+
+		return this.rowCount++;
+	}
+
+	/**
+	 * Clears {@code row} and makes it available to {@link #allocate()}.
+	 */
+	public synchronized void free(int row)
+	{
+		Iterator<Column> i = this.columns.values().iterator();
+		while (i.hasNext())
+			i.next().clear(row);
+
+		if (this.freeCount == this.freeRows.length)
+			this.freeRows = Arrays.copyOf(this.freeRows, this.freeCount * 2);
+		this.freeRows[this.freeCount++] = row;
+		this.size--;
+	}
+
+	/**
+	 * @return the number of rows in use.
+	 */
+	public synchronized int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * @return one more than the highest row ever allocated; rows below this
+	 *         that are not in use read as absent.
+	 */
+	public synchronized int rowCount()
+	{
+		return this.rowCount;
+	}
+
+	public boolean contains(int row, Object key)
+	{
+		Column c = this.columns.get(nameOf(key));
+		return c != null && c.has(row);
+	}
+
+	public Object get(int row, Object key)
+	{
+		Column c = this.columns.get(nameOf(key));
+		return (c == null) ? null : c.get(row);
+	}
+
+	public <T> T get(int row, DecorationKey<T> key)
+	{
+		Column c = checked(this.columns.get(key.name()), key);
+		return (c == null) ? null : key.cast(c.get(row));
+	}
+
+	/**
+	 * @return the decoration, or {@code NaN} if {@code row} has none.
+	 */
+	public double getDouble(int row, DecorationKey<Double> key)
+	{
+		Column c = checked(this.columns.get(key.name()), key);
+		return (c == null) ? Double.NaN : c.getDouble(row);
+	}
+
+	/**
+	 * @return the decoration, or {@code 0} if {@code row} has none.
+	 */
+	public long getLong(int row, DecorationKey<Long> key)
+	{
+		Column c = checked(this.columns.get(key.name()), key);
+		return (c == null) ? 0 : c.getLong(row);
+	}
+
+	/**
+	 * @return the decoration, or {@code 0} if {@code row} has none.
+	 */
+	public int getInt(int row, DecorationKey<Integer> key)
+	{
+		Column c = checked(this.columns.get(key.name()), key);
+		return (c == null) ? 0 : (int) c.getLong(row);
+	}
+
+	/**
+	 * @return {@code c}, after checking that a primitive {@code key} and a
+	 *         primitive column are of the same kind.
+	 */
+	private static Column checked(Column c, Object key)
+	{
+		if (c == null || !(key instanceof DecorationKey<?>))
+			return c;
+
+		DecorationKey<?> k = (DecorationKey<?>) key;
+		if (k.kind() != DecorationKey.OBJECT && c.kind() != DecorationKey.OBJECT && k.kind() != c.kind())
+			throw new IllegalArgumentException(String.format("Decoration \"%s\" is stored as %s values, not %s.", k.name(),
+				kindName(c.kind()), kindName(k.kind())));
+
+		return c;
+	}
+
+	private static String kindName(int kind)
+	{
+		switch (kind)
+		{
+			case DecorationKey.DOUBLE:
+				return "double";
+			case DecorationKey.LONG:
+				return "long";
+			case DecorationKey.INT:
+				return "int";
+			default:
+				return "object";
+		}
+	}
+
+	/**
+	 * Sets a decoration, creating an object column if {@code key} has none
+	 * yet. A null value removes the decoration.
+	 */
+	public void put(int row, Object key, Object value)
+	{
+		this.column(key).set(row, value);
+	}
+
+	public <T> void put(int row, DecorationKey<T> key, T value)
+	{
+		this.column(key).set(row, value);
+	}
+
+	public void putDouble(int row, DecorationKey<Double> key, double value)
+	{
+		this.column(key).setDouble(row, value);
+	}
+
+	public void putLong(int row, DecorationKey<Long> key, long value)
+	{
+		this.column(key).setLong(row, value);
+	}
+
+	public void putInt(int row, DecorationKey<Integer> key, int value)
+	{
+		this.column(key).setLong(row, value);
+	}
+
+	public void remove(int row, Object key)
+	{
+		Column c = this.columns.get(nameOf(key));
+		if (c != null)
+			c.clear(row);
+	}
+
+	/**
+	 * @return a new map of every decoration {@code row} has.
+	 */
+	public HashMap<Object, Object> toMap(int row)
+	{
+		HashMap<Object, Object> map = new HashMap<Object, Object>();
+		Iterator<Map.Entry<Object, Column>> i = this.columns.entrySet().iterator();
+		while (i.hasNext())
+		{
+			Map.Entry<Object, Column> entry = i.next();
+			if (entry.getValue().has(row))
+				map.put(entry.getKey(), entry.getValue().get(row));
+		}
+
+		return map;
+	}
+
+	private static Object nameOf(Object key)
+	{
+		return (key instanceof DecorationKey<?>) ? ((DecorationKey<?>) key).name() : key;
+	}
+
+	private Column column(Object key)
+	{
+		Object name = nameOf(key);
+		Column c = this.columns.get(name);
+		if (c != null)
+			return checked(c, key);
+
+		int kind = (key instanceof DecorationKey<?>) ? ((DecorationKey<?>) key).kind() : DecorationKey.OBJECT;
+		switch (kind)
+		{
+			case DecorationKey.DOUBLE:
+				c = new DoubleColumn();
+				break;
+			case DecorationKey.LONG:
+				c = new LongColumn(false);
+				break;
+			case DecorationKey.INT:
+				c = new LongColumn(true);
+				break;
+			default:
+				c = new ObjectColumn();
+		}
+
+		Column existing = this.columns.putIfAbsent(name, c);
+		return (existing == null) ? c : checked(existing, key);
+	}
+
+	/**
+	 * One decoration for every row. Rows past the end of a column's arrays
+	 * are absent; the arrays grow on the first put beyond them.
+	 */
+	private static abstract class Column
+	{
+		private long[] present = new long[0];
+
+		final boolean has(int row)
+		{
+			int word = row >>> 6;
+			return word < this.present.length && (this.present[word] & (1L << row)) != 0;
+		}
+
+		final void mark(int row)
+		{
+			int word = row >>> 6;
+			if (word >= this.present.length)
+				this.present = Arrays.copyOf(this.present, Math.max(word + 1, this.present.length * 2));
+			this.present[word] |= 1L << row;
+		}
+
+		synchronized void clear(int row)
+		{
+			int word = row >>> 6;
+			if (word < this.present.length)
+				this.present[word] &= ~(1L << row);
+		}
+
+		static int grow(int length, int row)
+		{
+			return Math.max(row + 1, Math.max(16, length + (length >> 1)));
+		}
+
+		abstract int kind();
+
+		abstract Object get(int row);
+
+		abstract void set(int row, Object value);
+
+		double getDouble(int row)
+		{
+			Object value = this.get(row);
+			return (value == null) ? Double.NaN : number(value).doubleValue();
+		}
+
+		long getLong(int row)
+		{
+			Object value = this.get(row);
+			return (value == null) ? 0 : number(value).longValue();
+		}
+
+		static Number number(Object value)
+		{
+			if (!(value instanceof Number))
+				throw new IllegalArgumentException(String.format("Decoration value \"%s\" is not a number.", value));
+
+			return (Number) value;
+		}
+
+		synchronized void setDouble(int row, double value)
+		{
+			this.set(row, Double.valueOf(value));
+		}
+
+		synchronized void setLong(int row, long value)
+		{
+			this.set(row, Long.valueOf(value));
+		}
+	}
+
+	private static final class ObjectColumn extends Column
+	{
+		private Object[] values = new Object[0];
+
+		int kind()
+		{
+			return DecorationKey.OBJECT;
+		}
+
+		Object get(int row)
+		{
+			return (row < this.values.length) ? this.values[row] : null;
+		}
+
+		synchronized void set(int row, Object value)
+		{
+			if (value == null)
+			{
+				this.clear(row);
+				return;
+			}
+
+			if (row >= this.values.length)
+				this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+			this.values[row] = value;
+			this.mark(row);
+		}
+
+		synchronized void clear(int row)
+		{
+			super.clear(row);
+			if (row < this.values.length)
+				this.values[row] = null;
+		}
+	}
+
+	private static final class DoubleColumn extends Column
+	{
+		private double[] values = new double[0];
+
+		int kind()
+		{
+			return DecorationKey.DOUBLE;
+		}
+
+		Object get(int row)
+		{
+			return this.has(row) ? Double.valueOf(this.values[row]) : null;
+		}
+
+		double getDouble(int row)
+		{
+			return this.has(row) ? this.values[row] : Double.NaN;
+		}
+
+		synchronized void set(int row, Object value)
+		{
+			if (value == null)
+				this.clear(row);
+			else
+				this.setDouble(row, number(value).doubleValue());
+		}
+
+		synchronized void setDouble(int row, double value)
+		{
+			if (row >= this.values.length)
+				this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+			this.values[row] = value;
+			this.mark(row);
+		}
+	}
+
+	/**
+	 * Holds {@code long} or, for int keys, {@code int} decorations.
+	 */
+	private static final class LongColumn extends Column
+	{
+		private final boolean ints;
+		private long[] values = new long[0];
+
+		LongColumn(boolean ints)
+		{
+			this.ints = ints;
+		}
+
+		int kind()
+		{
+			return this.ints ? DecorationKey.INT : DecorationKey.LONG;
+		}
+
+		Object get(int row)
+		{
+			if (!this.has(row))
+				return null;
+
+			return this.ints ? (Object) Integer.valueOf((int) this.values[row]) : (Object) Long.valueOf(this.values[row]);
+		}
+
+		long getLong(int row)
+		{
+			return this.has(row) ? this.values[row] : 0;
+		}
+
+		synchronized void set(int row, Object value)
+		{
+			if (value == null)
+				this.clear(row);
+			else
+				this.setLong(row, number(value).longValue());
+		}
+
+		synchronized void setLong(int row, long value)
+		{
+			if (row >= this.values.length)
+				this.values = Arrays.copyOf(this.values, grow(this.values.length, row));
+			this.values[row] = value;
+			this.mark(row);
+		}
+	}
+}
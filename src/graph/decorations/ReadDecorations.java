@@ -19,5 +19,7 @@ public interface ReadDecorations
 {
 	Object get(Object key);
 
+	<T> T get(DecorationKey<T> key);
+
 	HashMap<Object, Object> decorations();
 }
@@ -18,4 +18,6 @@ public interface WriteDecorations
 	
 	void put(Object key, Object value);
 
+	<T> void put(DecorationKey<T> key, T value);
+
 }
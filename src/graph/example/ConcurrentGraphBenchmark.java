@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.example;
+
+import graph.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Measures edge insertion throughput of a {@link ConcurrentGraph} against a
+ * {@link Graph} behind one global lock, for 1, 2, 4, ... threads up to the
+ * number of available processors.
+ * <p>
+ * Usage: {@code ConcurrentGraphBenchmark [vertices] [edges]}
+ */
+public class ConcurrentGraphBenchmark
+{
+	public static void main(String[] args) throws Exception
+	{
+		int vertexCount = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+		int edgeCount = (args.length > 1) ? Integer.parseInt(args[1]) : 1000000;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		System.out.printf("%d vertices, %d edges, %d processors\n", vertexCount, edgeCount, cores);
+		System.out.printf("%8s %16s %16s\n", "threads", "locked (edge/s)", "concurrent (edge/s)");
+
+		for (int threads = 1; ; threads = Math.min(threads * 2, cores))
+		{
+			// warm up once, then measure
+			run(new Graph<Integer, Integer>(vertexCount, edgeCount), true, vertexCount, edgeCount / 10, threads);
+			run(new ConcurrentGraph<Integer, Integer>(vertexCount, edgeCount), false, vertexCount, edgeCount / 10, threads);
+
+			double locked = run(new Graph<Integer, Integer>(vertexCount, edgeCount), true, vertexCount, edgeCount, threads);
+			double concurrent = run(new ConcurrentGraph<Integer, Integer>(vertexCount, edgeCount), false, vertexCount, edgeCount, threads);
+
+			System.out.printf("%8d %16.0f %16.0f\n", threads, locked, concurrent);
+
+			if (threads == cores)
+				break;
+		}
+	}
+
+	/**
+	 * @return edges added per second.
+	 */
+	private static double run(final Graph<Integer, Integer> g, final boolean globalLock, final int vertexCount,
+		int edgeCount, int threads) throws Exception
+	{
+		for (int i = 0; i < vertexCount; i++)
+			g.addVertex(new Vertex<Integer, Integer>(i));
+
+		final int perThread = edgeCount / threads;
+		final CountDownLatch ready = new CountDownLatch(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<?>> done = new ArrayList<Future<?>>();
+
+		for (int t = 0; t < threads; t++)
+		{
+			final long seed = t;
+			done.add(pool.submit(new Callable<Void>()
+			{
+				public Void call() throws Exception
+				{
+					Random r = new Random(seed);
+					ArrayList<Vertex<Integer, Integer>> ends = new ArrayList<Vertex<Integer, Integer>>(2 * perThread);
+					for (int i = 0; i < 2 * perThread; i++)
+						ends.add(new Vertex<Integer, Integer>(r.nextInt(vertexCount)));
+
+					ready.countDown();
+					start.await();
+					for (int i = 0; i < perThread; i++)
+					{
+						if (globalLock)
+						{
+							synchronized (g)
+							{
+								g.addEdge(ends.get(2 * i), ends.get(2 * i + 1), i);
+							}
+						}
+						else
+							g.addEdge(ends.get(2 * i), ends.get(2 * i + 1), i);
+					}
+					return null;
+				}
+			}));
+		}
+
+		ready.await();
+		long begin = System.nanoTime();
+		start.countDown();
+		for (int t = 0; t < threads; t++)
+			done.get(t).get();
+		long elapsed = System.nanoTime() - begin;
+
+		pool.shutdown();
+
+		return perThread * (double) threads / (elapsed / 1e9);
+	}
+}
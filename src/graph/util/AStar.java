@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * Point-to-point shortest paths by A* search over the vertex ids and arc
+ * weights of an {@link IntGraph}. Vertices are settled in order of their
+ * distance from the source plus the {@link Heuristic} estimate of their
+ * distance to the target, and the search stops once the target is settled.
+ * <p>
+ * Like {@link Dijkstra}, a query allocates nothing beyond the path it
+ * returns and resets only the vertices the previous query touched.
+ */
+public class AStar
+{
+	private final IntGraph g;
+	private final Heuristic h;
+	private final IndexedHeap heap;
+
+	private final double[] distance;
+	private final int[] predecessor;
+	private final int[] touched;
+	private int touchedCount = 0;
+
+	private int source = -1;
+	private int settled = 0;
+
+	public AStar(IntGraph g, Heuristic h)
+	{
+		this.g = g;
+		this.h = h;
+
+		int n = g.vertexCount();
+		this.heap = new IndexedHeap(n);
+		this.distance = new double[n];
+		this.predecessor = new int[n];
+		this.touched = new int[n];
+
+		Arrays.fill(this.distance, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.predecessor, -1);
+	}
+
+	/**
+	 * @return the distance from {@code source} to {@code target}, or
+	 *         {@link Double#POSITIVE_INFINITY} if it cannot be reached.
+	 */
+	public double run(int source, int target)
+	{
+		this.clear();
+		this.source = source;
+
+		IntGraph graph = this.g;
+		IndexedHeap heap = this.heap;
+		double[] distance = this.distance;
+
+		this.touched[this.touchedCount++] = source;
+		distance[source] = 0;
+		heap.offer(source, this.h.estimate(source, target));
+
+		while (!heap.isEmpty())
+		{
+			int u = heap.poll();
+			this.settled++;
+			if (u == target)
+				break;
+
+			double d = distance[u];
+			int end = graph.lastArc(u);
+			for (int arc = graph.firstArc(u); arc < end; arc++)
+			{
+				double w = graph.weight(arc);
+				if (w < 0)
+					throw new IllegalArgumentException("negative weight on edge " + graph.edgeId(arc) + ".");
+
+				int v = graph.target(arc);
+				double dv = d + w;
+				if (dv < distance[v])
+				{
+					if (distance[v] == Double.POSITIVE_INFINITY)
+						this.touched[this.touchedCount++] = v;
+					distance[v] = dv;
+					this.predecessor[v] = u;
+					heap.offer(v, dv + this.h.estimate(v, target));
+				}
+			}
+		}
+
+		return distance[target];
+	}
+
+	private void clear()
+	{
+		for (int i = 0; i < this.touchedCount; i++)
+		{
+			int v = this.touched[i];
+			this.distance[v] = Double.POSITIVE_INFINITY;
+			this.predecessor[v] = -1;
+		}
+
+		this.touchedCount = 0;
+		this.settled = 0;
+		this.heap.clear();
+	}
+
+	/**
+	 * @return the number of vertices settled by the last run.
+	 */
+	public int settledCount()
+	{
+		return this.settled;
+	}
+
+	/**
+	 * @return the vertices on the shortest path from the last source to
+	 *         {@code target}, both included, or null if it was not reached.
+	 */
+	public int[] path(int target)
+	{
+		if (this.distance[target] == Double.POSITIVE_INFINITY)
+			return null;
+
+		int length = 1;
+		for (int v = target; v != this.source; v = this.predecessor[v])
+			length++;
+
+		int[] path = new int[length];
+		for (int v = target, i = length - 1; i >= 0; v = this.predecessor[v], i--)
+			path[i] = v;
+
+		return path;
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * Point-to-point shortest paths by Dijkstra's algorithm run from both ends of
+ * an {@link IntGraph} at once: forwards from the source and backwards, over
+ * {@link IntGraph#transpose()}, from the target. Each step advances the side
+ * whose next vertex is nearer. The search stops once the two nearest
+ * unsettled distances add up to at least the shortest path found where the
+ * searches meet.
+ * <p>
+ * Like {@link Dijkstra}, a query allocates nothing beyond the path it
+ * returns and resets only the vertices the previous query touched.
+ */
+public class BidirectionalDijkstra
+{
+	private final Side forward;
+	private final Side backward;
+
+	private int meeting = -1;
+	private double best = Double.POSITIVE_INFINITY;
+
+	public BidirectionalDijkstra(IntGraph g)
+	{
+		this.forward = new Side(g);
+		this.backward = new Side(g.transpose());
+	}
+
+	/**
+	 * @return the distance from {@code source} to {@code target}, or
+	 *         {@link Double#POSITIVE_INFINITY} if it cannot be reached.
+	 */
+	public double run(int source, int target)
+	{
+		Side f = this.forward, b = this.backward;
+		f.start(source);
+		b.start(target);
+		this.best = (source == target) ? 0 : Double.POSITIVE_INFINITY;
+		this.meeting = (source == target) ? source : -1;
+
+		while (!f.heap.isEmpty() && !b.heap.isEmpty())
+		{
+			if (f.heap.peekKey() + b.heap.peekKey() >= this.best)
+				break;
+
+			if (f.heap.peekKey() <= b.heap.peekKey())
+				this.step(f, b);
+			else
+				this.step(b, f);
+		}
+
+		return this.best;
+	}
+
+	/**
+	 * Settles the nearest vertex of {@code side}, checking each relaxed arc
+	 * for a shorter path through the vertices {@code other} has reached.
+	 */
+	private void step(Side side, Side other)
+	{
+		IntGraph graph = side.g;
+		double[] distance = side.distance;
+		int u = side.heap.poll();
+		side.settled++;
+
+		double d = distance[u];
+		int end = graph.lastArc(u);
+		for (int arc = graph.firstArc(u); arc < end; arc++)
+		{
+			double w = graph.weight(arc);
+			if (w < 0)
+				throw new IllegalArgumentException("negative weight on edge " + graph.edgeId(arc) + ".");
+
+			int v = graph.target(arc);
+			double dv = d + w;
+			if (dv < distance[v])
+			{
+				if (distance[v] == Double.POSITIVE_INFINITY)
+					side.touched[side.touchedCount++] = v;
+				distance[v] = dv;
+				side.predecessor[v] = u;
+				side.heap.offer(v, dv);
+			}
+
+			double through = distance[v] + other.distance[v];
+			if (through < this.best)
+			{
+				this.best = through;
+				this.meeting = v;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of vertices settled by the last run, from both ends.
+	 */
+	public int settledCount()
+	{
+		return this.forward.settled + this.backward.settled;
+	}
+
+	/**
+	 * @return the vertices on the shortest path found by the last run, from
+	 *         its source to its target, or null if there was none.
+	 */
+	public int[] path()
+	{
+		if (this.meeting < 0)
+			return null;
+
+		int length = 1;
+		for (int v = this.meeting; this.forward.predecessor[v] >= 0; v = this.forward.predecessor[v])
+			length++;
+		int head = length;
+		for (int v = this.meeting; this.backward.predecessor[v] >= 0; v = this.backward.predecessor[v])
+			length++;
+
+		int[] path = new int[length];
+		int i = head - 1;
+		for (int v = this.meeting; i >= 0; v = this.forward.predecessor[v])
+			path[i--] = v;
+		i = head;
+		for (int v = this.backward.predecessor[this.meeting]; v >= 0; v = this.backward.predecessor[v])
+			path[i++] = v;
+
+		return path;
+	}
+
+	/**
+	 * The state of the search from one end.
+	 */
+	private static class Side
+	{
+		final IntGraph g;
+		final IndexedHeap heap;
+		final double[] distance;
+		final int[] predecessor;
+		final int[] touched;
+		int touchedCount = 0;
+		int settled = 0;
+
+		Side(IntGraph g)
+		{
+			this.g = g;
+
+			int n = g.vertexCount();
+			this.heap = new IndexedHeap(n);
+			this.distance = new double[n];
+			this.predecessor = new int[n];
+			this.touched = new int[n];
+
+			Arrays.fill(this.distance, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.predecessor, -1);
+		}
+
+		/**
+		 * Forgets the last query and starts from {@code root}.
+		 */
+		void start(int root)
+		{
+			for (int i = 0; i < this.touchedCount; i++)
+			{
+				int v = this.touched[i];
+				this.distance[v] = Double.POSITIVE_INFINITY;
+				this.predecessor[v] = -1;
+			}
+
+			this.heap.clear();
+			this.settled = 0;
+			this.touchedCount = 1;
+			this.touched[0] = root;
+			this.distance[root] = 0;
+			this.heap.offer(root, 0);
+		}
+	}
+}
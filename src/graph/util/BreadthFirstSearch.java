@@ -0,0 +1,313 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * Direction-optimizing breadth-first search over the vertex ids of an
+ * {@link IntGraph}.
+ * <p>
+ * Each level is expanded either top-down, following the arcs leaving the
+ * frontier, or bottom-up, where every undiscovered vertex looks through the
+ * arcs entering it for a parent in the frontier and stops at the first one.
+ * The search switches to bottom-up once the frontier's arcs outnumber the
+ * unexplored arcs divided by {@code alpha}, and back once the frontier holds
+ * fewer than {@code n / beta} vertices (Beamer, Asanovi&#263; and Patterson).
+ * Top-down frontiers are kept in a queue and bottom-up frontiers in bitsets.
+ * <p>
+ * Levels and parents are kept in {@code int} arrays indexed by vertex id,
+ * reused by later runs.
+ */
+public class BreadthFirstSearch
+{
+	private IntGraph g;
+	private IntGraph reverse;
+
+	private int[] level = new int[0];
+	private int[] parent = new int[0];
+	private int[] queue = new int[0];
+	private long[] frontier = new long[0];
+	private long[] next = new long[0];
+
+	private int alpha = 14;
+	private int beta = 24;
+
+	private int levels = 0;
+	private long examined = 0;
+	private long newArcs = 0;
+
+	public BreadthFirstSearch(IntGraph newG)
+	{
+		this.reset(newG);
+	}
+
+	/**
+	 * Switches to {@code newG}, reallocating only if it is larger.
+	 */
+	public void reset(IntGraph newG)
+	{
+		this.g = newG;
+		this.reverse = newG.transpose();
+
+		int n = newG.vertexCount();
+		if (this.level.length < n)
+		{
+			this.level = new int[n];
+			this.parent = new int[n];
+			this.queue = new int[n];
+			this.frontier = new long[(n + 63) >>> 6];
+			this.next = new long[(n + 63) >>> 6];
+		}
+
+		Arrays.fill(this.level, 0, n, -1);
+		Arrays.fill(this.parent, 0, n, -1);
+		this.levels = 0;
+		this.examined = 0;
+	}
+
+	/**
+	 * Sets the thresholds for switching direction; see the class comment.
+	 */
+	public void setThresholds(int newAlpha, int newBeta)
+	{
+		if (newAlpha <= 0 || newBeta <= 0)
+			throw new IllegalArgumentException("thresholds must be positive.");
+
+		this.alpha = newAlpha;
+		this.beta = newBeta;
+	}
+
+	/**
+	 * Searches from {@code source}, forgetting any earlier run.
+	 *
+	 * @return the number of levels, counting the source's.
+	 */
+	public int run(int source)
+	{
+		IntGraph graph = this.g;
+		int n = graph.vertexCount();
+		Arrays.fill(this.level, 0, n, -1);
+		Arrays.fill(this.parent, 0, n, -1);
+		this.examined = 0;
+
+		this.level[source] = 0;
+		this.parent[source] = source;
+		this.queue[0] = source;
+
+		int lo = 0, hi = 1;
+		int frontierSize = 1;
+		long frontierArcs = graph.degree(source);
+		long unexploredArcs = graph.arcCount() - frontierArcs;
+		boolean bottomUp = false;
+		int depth = 0;
+
+		while (frontierSize > 0)
+		{
+			if (!bottomUp && frontierArcs > unexploredArcs / this.alpha)
+			{
+				this.queueToBits(lo, hi);
+				bottomUp = true;
+			}
+			else if (bottomUp && frontierSize < n / this.beta)
+			{
+				hi = this.bitsToQueue();
+				lo = 0;
+				bottomUp = false;
+			}
+
+			depth++;
+			this.newArcs = 0;
+			if (bottomUp)
+			{
+				frontierSize = this.bottomUpStep(depth);
+				long[] swap = this.frontier;
+				this.frontier = this.next;
+				this.next = swap;
+			}
+			else
+			{
+				int tail = this.topDownStep(depth, lo, hi);
+				lo = hi;
+				hi = tail;
+				frontierSize = hi - lo;
+			}
+
+			frontierArcs = this.newArcs;
+			unexploredArcs -= frontierArcs;
+		}
+
+		this.levels = depth;
+		return depth;
+	}
+
+	/**
+	 * Discovers the targets of the arcs leaving {@code queue[lo..hi)},
+	 * appending them at {@code hi}.
+	 *
+	 * @return the new end of the queue.
+	 */
+	private int topDownStep(int depth, int lo, int hi)
+	{
+		IntGraph graph = this.g;
+		int[] level = this.level;
+		int[] queue = this.queue;
+		int tail = hi;
+		long arcs = 0;
+
+		for (int i = lo; i < hi; i++)
+		{
+			int u = queue[i];
+			int end = graph.lastArc(u);
+			for (int arc = graph.firstArc(u); arc < end; arc++)
+			{
+				int v = graph.target(arc);
+				if (level[v] == -1)
+				{
+					level[v] = depth;
+					this.parent[v] = u;
+					queue[tail++] = v;
+					this.newArcs += graph.degree(v);
+				}
+			}
+			arcs += end - graph.firstArc(u);
+		}
+
+		this.examined += arcs;
+		return tail;
+	}
+
+	/**
+	 * Gives every undiscovered vertex with an arc from the frontier bitset a
+	 * parent, marking it in the next bitset.
+	 *
+	 * @return the number of vertices discovered.
+	 */
+	private int bottomUpStep(int depth)
+	{
+		IntGraph in = this.reverse;
+		int[] level = this.level;
+		long[] frontier = this.frontier;
+		long[] next = this.next;
+		int n = in.vertexCount();
+		int awake = 0;
+		long arcs = 0;
+
+		Arrays.fill(next, 0);
+		for (int v = 0; v < n; v++)
+		{
+			if (level[v] != -1)
+				continue;
+
+			int end = in.lastArc(v);
+			for (int arc = in.firstArc(v); arc < end; arc++)
+			{
+				arcs++;
+				int u = in.target(arc);
+				if ((frontier[u >>> 6] & (1L << u)) != 0)
+				{
+					level[v] = depth;
+					this.parent[v] = u;
+					next[v >>> 6] |= 1L << v;
+					this.newArcs += this.g.degree(v);
+					awake++;
+					break;
+				}
+			}
+		}
+
+		this.examined += arcs;
+		return awake;
+	}
+
+	private void queueToBits(int lo, int hi)
+	{
+		Arrays.fill(this.frontier, 0);
+		for (int i = lo; i < hi; i++)
+			this.frontier[this.queue[i] >>> 6] |= 1L << this.queue[i];
+	}
+
+	/**
+	 * @return the number of frontier vertices, written to the queue from 0.
+	 */
+	private int bitsToQueue()
+	{
+		int tail = 0;
+		for (int word = 0; word < this.frontier.length; word++)
+		{
+			long bits = this.frontier[word];
+			while (bits != 0)
+			{
+				this.queue[tail++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+			}
+		}
+
+		return tail;
+	}
+
+	/**
+	 * @return the level of {@code v}, its distance in arcs from the source,
+	 *         or {@code -1} if it was not reached.
+	 */
+	public int level(int v)
+	{
+		return this.level[v];
+	}
+
+	/**
+	 * @return the vertex that discovered {@code v}, {@code v} itself for the
+	 *         source, or {@code -1} if it was not reached.
+	 */
+	public int parent(int v)
+	{
+		return this.parent[v];
+	}
+
+	/**
+	 * @return the level of every vertex, indexed by id. The array is reused
+	 *         by later runs and may be longer than the graph.
+	 */
+	public int[] levels()
+	{
+		return this.level;
+	}
+
+	/**
+	 * @return the parent of every vertex, indexed by id. The array is reused
+	 *         by later runs and may be longer than the graph.
+	 */
+	public int[] parents()
+	{
+		return this.parent;
+	}
+
+	/**
+	 * @return the number of levels of the last run.
+	 */
+	public int levelCount()
+	{
+		return this.levels;
+	}
+
+	/**
+	 * @return the number of arcs looked at by the last run.
+	 */
+	public long arcsExamined()
+	{
+		return this.examined;
+	}
+}
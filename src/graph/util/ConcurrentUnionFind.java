@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A lock-free disjoint-set forest over the ids {@code 0} to {@code size - 1}.
+ * <p>
+ * Roots are linked with a compare-and-set, always the higher id under the
+ * lower, so concurrent unions can never form a cycle. Finds halve the path
+ * they walk with a compare-and-set that is simply skipped if another thread
+ * got there first.
+ */
+public class ConcurrentUnionFind
+{
+	private final AtomicIntegerArray parent;
+
+	public ConcurrentUnionFind(int size)
+	{
+		this.parent = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++)
+			this.parent.set(i, i);
+	}
+
+	public int size()
+	{
+		return this.parent.length();
+	}
+
+	/**
+	 * @return the root of the set holding {@code x}.
+	 */
+	public int find(int x)
+	{
+		while (true)
+		{
+			int p = this.parent.get(x);
+			if (p == x)
+				return x;
+
+			int grandparent = this.parent.get(p);
+			if (p != grandparent)
+				this.parent.compareAndSet(x, p, grandparent);
+			x = grandparent;
+		}
+	}
+
+	/**
+	 * Merges the sets holding {@code x} and {@code y}.
+	 *
+	 * @return false if they were already the same set.
+	 */
+	public boolean union(int x, int y)
+	{
+		while (true)
+		{
+			x = this.find(x);
+			y = this.find(y);
+			if (x == y)
+				return false;
+
+			if (x < y)
+			{
+				int swap = x;
+				x = y;
+				y = swap;
+			}
+
+			// x may have stopped being a root since it was found
+			if (this.parent.compareAndSet(x, x, y))
+				return true;
+		}
+	}
+
+	public boolean sameSet(int x, int y)
+	{
+		while (true)
+		{
+			x = this.find(x);
+			y = this.find(y);
+			if (x == y)
+				return true;
+
+			// a root that is still a root proves the sets apart
+			if (this.parent.get(x) == x)
+				return false;
+		}
+	}
+}
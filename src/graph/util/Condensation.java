@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * The directed graph of the components of an {@link IntGraph}: one vertex per
+ * component and one arc per pair of components joined by at least one arc,
+ * weighted by the number of arcs joining them. Arcs within a component are
+ * dropped. The condensation of the strongly connected components of a graph
+ * has no cycles.
+ * <p>
+ * Each arc is its own edge, so {@link #edgeId(int)} is the arc index here,
+ * and the arc index of the matching forward arc in the {@link #transpose()}.
+ */
+public class Condensation implements IntGraph
+{
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] edges;
+	private final double[] weights;
+
+	private Condensation transposed;
+
+	/**
+	 * @param component the component of each vertex of {@code g}, from
+	 *        {@code 0} to {@code count - 1}.
+	 */
+	public Condensation(IntGraph g, int[] component, int count)
+	{
+		int n = g.vertexCount();
+
+		// group the arcs between components by the component they leave
+		int[] rawOffsets = new int[count + 1];
+		for (int u = 0; u < n; u++)
+			for (int arc = g.firstArc(u); arc < g.lastArc(u); arc++)
+				if (component[g.target(arc)] != component[u])
+					rawOffsets[component[u] + 1]++;
+		for (int c = 0; c < count; c++)
+			rawOffsets[c + 1] += rawOffsets[c];
+
+		int[] raw = new int[rawOffsets[count]];
+		int[] next = Arrays.copyOf(rawOffsets, count);
+		for (int u = 0; u < n; u++)
+			for (int arc = g.firstArc(u); arc < g.lastArc(u); arc++)
+				if (component[g.target(arc)] != component[u])
+					raw[next[component[u]]++] = component[g.target(arc)];
+
+		// merge repeated targets in place, counting them in their weight
+		int[] slot = new int[count];
+		Arrays.fill(slot, -1);
+		double[] counts = new double[raw.length];
+		this.offsets = new int[count + 1];
+		int arcs = 0;
+		for (int c = 0; c < count; c++)
+		{
+			this.offsets[c] = arcs;
+			for (int i = rawOffsets[c]; i < rawOffsets[c + 1]; i++)
+			{
+				int d = raw[i];
+				if (slot[d] < this.offsets[c])
+				{
+					slot[d] = arcs;
+					raw[arcs++] = d;
+				}
+				counts[slot[d]]++;
+			}
+		}
+		this.offsets[count] = arcs;
+
+		this.targets = Arrays.copyOf(raw, arcs);
+		this.weights = Arrays.copyOf(counts, arcs);
+		this.edges = new int[arcs];
+		for (int arc = 0; arc < arcs; arc++)
+			this.edges[arc] = arc;
+	}
+
+	/**
+	 * Reverses the arcs of {@code forward}.
+	 */
+	private Condensation(Condensation forward)
+	{
+		this.transposed = forward;
+
+		int count = forward.vertexCount();
+		int arcs = forward.arcCount();
+		this.offsets = new int[count + 1];
+		for (int arc = 0; arc < arcs; arc++)
+			this.offsets[forward.targets[arc] + 1]++;
+		for (int c = 0; c < count; c++)
+			this.offsets[c + 1] += this.offsets[c];
+
+		this.targets = new int[arcs];
+		this.edges = new int[arcs];
+		this.weights = new double[arcs];
+
+		int[] next = Arrays.copyOf(this.offsets, count);
+		for (int c = 0; c < count; c++)
+		{
+			for (int arc = forward.offsets[c]; arc < forward.offsets[c + 1]; arc++)
+			{
+				int at = next[forward.targets[arc]]++;
+				this.targets[at] = c;
+				this.edges[at] = arc;
+				this.weights[at] = forward.weights[arc];
+			}
+		}
+	}
+
+	public boolean isDirected()
+	{
+		return true;
+	}
+
+	/**
+	 * Builds the reversed graph on first use.
+	 */
+	public synchronized Condensation transpose()
+	{
+		if (this.transposed == null)
+			this.transposed = new Condensation(this);
+
+		return this.transposed;
+	}
+
+	public int vertexCount()
+	{
+		return this.offsets.length - 1;
+	}
+
+	public int edgeCount()
+	{
+		return this.targets.length;
+	}
+
+	public int arcCount()
+	{
+		return this.targets.length;
+	}
+
+	public int degree(int v)
+	{
+		return this.offsets[v + 1] - this.offsets[v];
+	}
+
+	public int firstArc(int v)
+	{
+		return this.offsets[v];
+	}
+
+	public int lastArc(int v)
+	{
+		return this.offsets[v + 1];
+	}
+
+	public int target(int arc)
+	{
+		return this.targets[arc];
+	}
+
+	public int edgeId(int arc)
+	{
+		return this.edges[arc];
+	}
+
+	public double weight(int arc)
+	{
+		return this.weights[arc];
+	}
+}
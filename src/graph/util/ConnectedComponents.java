@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The connected components of an {@link IntGraph}, found by uniting the ends
+ * of every arc in a {@link ConcurrentUnionFind}, in parallel chunks of
+ * vertices on a {@link ForkJoinPool}. The arcs of a directed graph are
+ * followed either way, giving its weakly connected components.
+ * <p>
+ * Components are numbered densely from {@code 0}, in order of their lowest
+ * vertex id.
+ */
+public class ConnectedComponents
+{
+	/**
+	 * The number of vertices below which a task stops splitting.
+	 */
+	private static final int GRAIN = 4096;
+
+	private final IntGraph g;
+	private final ForkJoinPool pool;
+
+	private final int[] component;
+	private int[] sizes = new int[0];
+	private int count = 0;
+
+	public ConnectedComponents(IntGraph g)
+	{
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	public ConnectedComponents(IntGraph g, ForkJoinPool pool)
+	{
+		this.g = g;
+		this.pool = pool;
+		this.component = new int[g.vertexCount()];
+	}
+
+	/**
+	 * @return the number of components.
+	 */
+	public int run()
+	{
+		int n = this.g.vertexCount();
+		ConcurrentUnionFind sets = new ConcurrentUnionFind(n);
+		this.pool.invoke(new Unite(sets, 0, n));
+
+		// roots are the lowest ids of their sets, so they come first
+		this.count = 0;
+		for (int v = 0; v < n; v++)
+		{
+			int root = sets.find(v);
+			this.component[v] = (root == v) ? this.count++ : this.component[root];
+		}
+
+		this.sizes = new int[this.count];
+		for (int v = 0; v < n; v++)
+			this.sizes[this.component[v]]++;
+
+		return this.count;
+	}
+
+	/**
+	 * Unites the ends of the arcs leaving the vertices {@code [lo, hi)}.
+	 */
+	@SuppressWarnings("serial")
+	private class Unite extends RecursiveAction
+	{
+		private final ConcurrentUnionFind sets;
+		private final int lo;
+		private final int hi;
+
+		Unite(ConcurrentUnionFind sets, int lo, int hi)
+		{
+			this.sets = sets;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (this.hi - this.lo > GRAIN)
+			{
+				int mid = (this.lo + this.hi) >>> 1;
+				invokeAll(new Unite(this.sets, this.lo, mid), new Unite(this.sets, mid, this.hi));
+				return;
+			}
+
+			IntGraph graph = ConnectedComponents.this.g;
+			boolean directed = graph.isDirected();
+			for (int u = this.lo; u < this.hi; u++)
+			{
+				int end = graph.lastArc(u);
+				for (int arc = graph.firstArc(u); arc < end; arc++)
+				{
+					int v = graph.target(arc);
+					// an undirected edge is seen from both ends
+					if (directed || u < v)
+						this.sets.union(u, v);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of components found by the last run.
+	 */
+	public int componentCount()
+	{
+		return this.count;
+	}
+
+	/**
+	 * @return the component of {@code v}.
+	 */
+	public int component(int v)
+	{
+		return this.component[v];
+	}
+
+	/**
+	 * @return the component of every vertex, indexed by id.
+	 */
+	public int[] components()
+	{
+		return this.component;
+	}
+
+	/**
+	 * @return the number of vertices in component {@code c}.
+	 */
+	public int componentSize(int c)
+	{
+		return this.sizes[c];
+	}
+}
@@ -0,0 +1,491 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Single-source shortest paths by delta-stepping (Meyer and Sanders) over the
+ * vertex ids and arc weights of an {@link IntGraph}, relaxing each bucket
+ * across a {@link ForkJoinPool}.
+ * <p>
+ * Tentative distances fall into buckets {@code delta} wide. The lowest
+ * non-empty bucket is emptied by relaxing the light arcs, those no heavier
+ * than {@code delta}, of its vertices in parallel until no vertex re-enters
+ * it. The heavy arcs of everything it held are then relaxed once. Distances
+ * are lowered with a compare-and-set on their bits, which order like the
+ * distances themselves since they are never negative. Predecessors are
+ * derived from the final distances.
+ * <p>
+ * Graphs with fewer vertices than the sequential threshold are handed to
+ * {@link Dijkstra} instead.
+ */
+public class DeltaStepping implements ShortestPaths
+{
+	/**
+	 * The number of vertices below which a task stops splitting.
+	 */
+	private static final int GRAIN = 256;
+
+	private static final long INFINITY = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+
+	private final IntGraph g;
+	private final ForkJoinPool pool;
+	private final double delta;
+	private int sequentialThreshold = 50000;
+
+	private final AtomicLongArray distance;
+	private final int[] predecessor;
+	private final ConcurrentLinkedQueue<Chunk> improved = new ConcurrentLinkedQueue<Chunk>();
+
+	private int[][] buckets;
+	private int[] bucketSizes;
+	private int[] frontier;
+	private int[] settled;
+	private int[] taken;
+	private int[] settledIn;
+	private int takes = 0;
+	private int phases = 0;
+
+	private Dijkstra sequential;
+	private boolean ranSequential = false;
+	private int source = -1;
+
+	/**
+	 * Uses the largest weight divided by the average degree as
+	 * {@code delta}, on the common pool.
+	 */
+	public DeltaStepping(IntGraph g)
+	{
+		this(g, defaultDelta(g), ForkJoinPool.commonPool());
+	}
+
+	public DeltaStepping(IntGraph g, double delta)
+	{
+		this(g, delta, ForkJoinPool.commonPool());
+	}
+
+	public DeltaStepping(IntGraph g, double delta, ForkJoinPool pool)
+	{
+		if (!(delta > 0))
+			throw new IllegalArgumentException("delta must be positive.");
+
+		this.g = g;
+		this.pool = pool;
+		this.delta = delta;
+
+		int n = g.vertexCount();
+		this.distance = new AtomicLongArray(n);
+		this.predecessor = new int[n];
+	}
+
+	private static double defaultDelta(IntGraph g)
+	{
+		double max = maxWeight(g);
+		if (max == 0 || g.vertexCount() == 0)
+			return 1;
+
+		double averageDegree = Math.max(1, g.arcCount() / (double) g.vertexCount());
+		return max / averageDegree;
+	}
+
+	private static double maxWeight(IntGraph g)
+	{
+		double max = 0;
+		for (int arc = 0; arc < g.arcCount(); arc++)
+		{
+			double w = g.weight(arc);
+			if (w < 0)
+				throw new IllegalArgumentException("negative weight on edge " + g.edgeId(arc) + ".");
+			max = Math.max(max, w);
+		}
+
+		return max;
+	}
+
+	/**
+	 * Sets the number of vertices below which {@link Dijkstra} is run
+	 * instead.
+	 */
+	public void setSequentialThreshold(int vertices)
+	{
+		this.sequentialThreshold = vertices;
+	}
+
+	/**
+	 * Finds the distance from {@code source} to every vertex.
+	 */
+	public void run(int source)
+	{
+		this.source = source;
+		this.ranSequential = this.g.vertexCount() < this.sequentialThreshold;
+		if (this.ranSequential)
+		{
+			if (this.sequential == null)
+				this.sequential = new Dijkstra(this.g);
+			this.sequential.run(source);
+			return;
+		}
+
+		this.allocate();
+
+		int n = this.g.vertexCount();
+		for (int v = 0; v < n; v++)
+			this.distance.set(v, INFINITY);
+		Arrays.fill(this.taken, -1);
+		Arrays.fill(this.settledIn, -1);
+		Arrays.fill(this.bucketSizes, 0);
+		this.takes = 0;
+		this.phases = 0;
+
+		this.distance.set(source, 0);
+		this.add(0, source);
+		long pending = 1;
+
+		for (long current = 0; pending > 0; current++)
+		{
+			int slot = (int) (current % this.buckets.length);
+			if (this.bucketSizes[slot] == 0)
+				continue;
+
+			int phase = this.phases++;
+			int settledCount = 0;
+
+			while (this.bucketSizes[slot] > 0)
+			{
+				pending -= this.bucketSizes[slot];
+				int size = this.takeFrontier(slot, current);
+				this.bucketSizes[slot] = 0;
+
+				for (int i = 0; i < size; i++)
+				{
+					int v = this.frontier[i];
+					if (this.settledIn[v] != phase)
+					{
+						this.settledIn[v] = phase;
+						this.settled[settledCount++] = v;
+					}
+				}
+
+				this.pool.invoke(new Relax(this.frontier, 0, size, true));
+				pending += this.drain();
+			}
+
+			if (settledCount > 0)
+			{
+				this.pool.invoke(new Relax(this.settled, 0, settledCount, false));
+				pending += this.drain();
+			}
+		}
+
+		this.findPredecessors();
+	}
+
+	private void allocate()
+	{
+		if (this.buckets != null)
+			return;
+
+		int n = this.g.vertexCount();
+		int count = (int) Math.min(Integer.MAX_VALUE - 1, Math.floor(maxWeight(this.g) / this.delta)) + 2;
+		this.buckets = new int[count][];
+		this.bucketSizes = new int[count];
+		this.frontier = new int[n];
+		this.settled = new int[n];
+		this.taken = new int[n];
+		this.settledIn = new int[n];
+	}
+
+	private int bucketOf(long bits)
+	{
+		return (int) (this.bucketIndex(bits) % this.buckets.length);
+	}
+
+	private long bucketIndex(long bits)
+	{
+		return (long) (Double.longBitsToDouble(bits) / this.delta);
+	}
+
+	private void add(int slot, int v)
+	{
+		int[] bucket = this.buckets[slot];
+		int size = this.bucketSizes[slot];
+		if (bucket == null)
+			this.buckets[slot] = bucket = new int[16];
+		else if (size == bucket.length)
+			this.buckets[slot] = bucket = Arrays.copyOf(bucket, size * 2);
+
+		bucket[size] = v;
+		this.bucketSizes[slot] = size + 1;
+	}
+
+	/**
+	 * Moves the vertices of bucket {@code slot} that still belong to bucket
+	 * {@code current} into the frontier, once each.
+	 *
+	 * @return the size of the frontier.
+	 */
+	private int takeFrontier(int slot, long current)
+	{
+		int[] bucket = this.buckets[slot];
+		int take = this.takes++;
+		int size = 0;
+
+		for (int i = 0; i < this.bucketSizes[slot]; i++)
+		{
+			int v = bucket[i];
+			if (this.taken[v] == take || this.bucketIndex(this.distance.get(v)) != current)
+				continue;
+
+			this.frontier[size++] = v;
+			this.taken[v] = take;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Files every vertex lowered by the last relaxation under its new
+	 * bucket.
+	 *
+	 * @return the number of vertices filed.
+	 */
+	private int drain()
+	{
+		int filed = 0;
+		Chunk chunk;
+		while ((chunk = this.improved.poll()) != null)
+		{
+			for (int i = 0; i < chunk.count; i++)
+			{
+				int v = chunk.ids[i];
+				this.add(this.bucketOf(this.distance.get(v)), v);
+			}
+			filed += chunk.count;
+		}
+
+		return filed;
+	}
+
+	/**
+	 * Lowers {@code v} to {@code bits} unless it is already no higher.
+	 *
+	 * @return true if this call lowered it.
+	 */
+	private boolean lower(int v, long bits)
+	{
+		while (true)
+		{
+			long old = this.distance.get(v);
+			if (old <= bits)
+				return false;
+			if (this.distance.compareAndSet(v, old, bits))
+				return true;
+		}
+	}
+
+	/**
+	 * Relaxes the light or heavy arcs leaving {@code ids[lo..hi)}.
+	 */
+	@SuppressWarnings("serial")
+	private class Relax extends RecursiveAction
+	{
+		private final int[] ids;
+		private final int lo;
+		private final int hi;
+		private final boolean light;
+
+		Relax(int[] ids, int lo, int hi, boolean light)
+		{
+			this.ids = ids;
+			this.lo = lo;
+			this.hi = hi;
+			this.light = light;
+		}
+
+		protected void compute()
+		{
+			if (this.hi - this.lo > GRAIN)
+			{
+				int mid = (this.lo + this.hi) >>> 1;
+				invokeAll(new Relax(this.ids, this.lo, mid, this.light), new Relax(this.ids, mid, this.hi, this.light));
+				return;
+			}
+
+			IntGraph graph = DeltaStepping.this.g;
+			Chunk found = new Chunk();
+			for (int i = this.lo; i < this.hi; i++)
+			{
+				int u = this.ids[i];
+				double d = Double.longBitsToDouble(distance.get(u));
+				int end = graph.lastArc(u);
+				for (int arc = graph.firstArc(u); arc < end; arc++)
+				{
+					double w = graph.weight(arc);
+					if ((w <= delta) != this.light)
+						continue;
+
+					int v = graph.target(arc);
+					if (lower(v, Double.doubleToLongBits(d + w)))
+						found.add(v);
+				}
+			}
+
+			if (found.count > 0)
+				improved.add(found);
+		}
+	}
+
+	/**
+	 * A task's list of lowered vertices.
+	 */
+	private static class Chunk
+	{
+		int[] ids = new int[16];
+		int count = 0;
+
+		void add(int v)
+		{
+			if (this.count == this.ids.length)
+				this.ids = Arrays.copyOf(this.ids, this.count * 2);
+			this.ids[this.count++] = v;
+		}
+	}
+
+	/**
+	 * Gives every reached vertex a predecessor along a tight arc, preferring
+	 * arcs of positive weight. Tight arcs of zero weight can form cycles, so
+	 * vertices reached only through them are linked by a search outwards from
+	 * those already linked.
+	 */
+	private void findPredecessors()
+	{
+		IntGraph in = this.g.transpose();
+		int n = this.g.vertexCount();
+		Arrays.fill(this.predecessor, -1);
+
+		this.pool.invoke(new Link(in, 0, n));
+
+		// the frontier array is free again, so it serves as the queue
+		int[] queue = this.frontier;
+		int head = 0, tail = 0;
+		for (int v = 0; v < n; v++)
+			if (this.predecessor[v] >= 0 || v == this.source)
+				queue[tail++] = v;
+
+		while (head < tail)
+		{
+			int u = queue[head++];
+			double d = this.distance(u);
+			int end = this.g.lastArc(u);
+			for (int arc = this.g.firstArc(u); arc < end; arc++)
+			{
+				int v = this.g.target(arc);
+				if (this.g.weight(arc) == 0 && v != this.source && this.predecessor[v] < 0 && this.distance(v) == d)
+				{
+					this.predecessor[v] = u;
+					queue[tail++] = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Links the vertices {@code [lo, hi)} to a predecessor over a tight arc
+	 * of positive weight, if they have one.
+	 */
+	@SuppressWarnings("serial")
+	private class Link extends RecursiveAction
+	{
+		private final IntGraph in;
+		private final int lo;
+		private final int hi;
+
+		Link(IntGraph in, int lo, int hi)
+		{
+			this.in = in;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (this.hi - this.lo > GRAIN * 16)
+			{
+				int mid = (this.lo + this.hi) >>> 1;
+				invokeAll(new Link(this.in, this.lo, mid), new Link(this.in, mid, this.hi));
+				return;
+			}
+
+			for (int v = this.lo; v < this.hi; v++)
+			{
+				double d = distance(v);
+				if (d == Double.POSITIVE_INFINITY)
+					continue;
+
+				int end = this.in.lastArc(v);
+				for (int arc = this.in.firstArc(v); arc < end; arc++)
+				{
+					double w = this.in.weight(arc);
+					int u = this.in.target(arc);
+					if (w > 0 && distance(u) + w == d)
+					{
+						predecessor[v] = u;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	public double distance(int v)
+	{
+		if (this.ranSequential)
+			return this.sequential.distance(v);
+
+		return Double.longBitsToDouble(this.distance.get(v));
+	}
+
+	public int predecessor(int v)
+	{
+		if (this.ranSequential)
+			return this.sequential.predecessor(v);
+
+		return this.predecessor[v];
+	}
+
+	public int[] path(int target)
+	{
+		if (this.ranSequential)
+			return this.sequential.path(target);
+		if (this.distance(target) == Double.POSITIVE_INFINITY)
+			return null;
+
+		int length = 1;
+		for (int v = target; v != this.source; v = this.predecessor[v])
+			length++;
+
+		int[] path = new int[length];
+		for (int v = target, i = length - 1; i >= 0; v = this.predecessor[v], i--)
+			path[i] = v;
+
+		return path;
+	}
+}
@@ -13,33 +13,53 @@
  */
 package graph.util;
 
+import graph.CsrGraph;
 import graph.Edge;
 import graph.Graph;
+import graph.GraphView;
 import graph.Vertex;
 
 import java.util.*;
 
 public class DepthFirstSearch<V extends Comparable<V>, E extends Comparable<E>>
 {
-	private Graph<V, E> g;
+	private GraphView<V, E> g;
 
 	private Iterator<Vertex<V, E>> vertexIter;
     private HashMap<Vertex<V, E>, Integer[]> vertexTimings = new HashMap<Vertex<V, E>, Integer[]>();
 
+    // runDFS searches a frozen copy of the graph; the iterators walk it live
+    private CsrGraph<V, E> frozen = null;
+    private long frozenAt = -1;
+    private IntDepthFirstSearch search = null;
+    private boolean frozenTimes = false;
+
     private int time = -1;
 
-    public DepthFirstSearch(Graph<V, E> newG)
+    public DepthFirstSearch(GraphView<V, E> newG)
     {
     	this.g = newG;
     }
 
     public Integer getStartTiming(Vertex<V, E> v)
     {
+    	if (this.frozenTimes)
+    	{
+    		int id = this.frozen.idOf(v);
+    		return (id < 0) ? -1 : this.search.startTime(id);
+    	}
+
     	return this.vertexTimings.get(v)[0];
     }
 
     public Integer getFinishTiming(Vertex<V, E> v)
     {
+    	if (this.frozenTimes)
+    	{
+    		int id = this.frozen.idOf(v);
+    		return (id < 0) ? -1 : this.search.finishTime(id);
+    	}
+
     	return this.vertexTimings.get(v)[1];
     }
 
@@ -58,52 +78,50 @@ public class DepthFirstSearch<V extends Comparable<V>, E extends Comparable<E>>
     	return this.runDFS(null);
     }
 
+    /**
+     * Searches from {@code v}, if it is not null, and then from every vertex
+     * not yet reached. The search runs over a {@link CsrGraph} frozen from
+     * the graph, which is frozen again whenever the graph has changed since.
+     * Vertices added after the search report times of {@code -1}.
+     *
+     * @return the last time stamped.
+     */
     public Integer runDFS(Vertex<V, E> v)
     {
-    	Iterator<Vertex<V, E> > vertexEntries = g.vertexSet().iterator();
-        while(vertexEntries.hasNext())
-        {
-        	Integer[] initValue = {-1,-1};
-            vertexTimings.put(vertexEntries.next(), initValue);
-        }
-
-        this.time = -1;
-        if (v != null)
-        	this.time = this.runDFS(v, this.time);
-
-        vertexIter = this.g.vertexSet().iterator();
-        while (vertexIter.hasNext())
-            this.time = this.runDFS(vertexIter.next(), this.time);
-
-        return this.time;
+    	if (this.frozen == null || this.isStale())
+    		this.refresh();
+
+    	int root = -1;
+    	if (v != null)
+    	{
+    		root = this.frozen.idOf(v);
+    		if (root < 0)
+    			throw new IllegalArgumentException("vertex not found in graph.");
+    	}
+
+    	this.frozenTimes = true;
+    	this.time = this.search.run(root);
+    	return this.time;
     }
 
-    private Integer runDFS(Vertex<V, E> v, Integer time)
+    private boolean isStale()
     {
-        if (this.vertexTimings.get(v)[0] != -1)
-        {
-            System.out.printf("  vertex %s already started.\n", v.toString());
-            return time;
-        }
-        else
-        {
-            this.vertexTimings.get(v)[0] = ++time;
-            System.out.printf("%s = {start: %d, finish: %d}\n", v.getValue(), this.vertexTimings.get(v)[0], this.vertexTimings.get(v)[1]);
-        }
-
-        Iterator<Edge<V, E>> edgeIter = v.edgesOf().iterator();
-        Edge<V, E> e = null;
-        while (edgeIter.hasNext())
-        {
-            e = edgeIter.next();
-            System.out.printf("  traversing edge %s\n", e.toString());
-            time = runDFS(e.opposite(v), time);
-        }
-
-        this.vertexTimings.get(v)[1] = ++time;
-        System.out.printf("\n%s = {start: %d, finish: %d}\n", v.getValue(), this.vertexTimings.get(v)[0], this.vertexTimings.get(v)[1]);
+    	return (this.g instanceof Graph<?, ?>) && ((Graph<?, ?>) this.g).modificationCount() != this.frozenAt;
+    }
 
-        return time;
+    /**
+     * Refreezes the graph for the next {@link #runDFS()}, reusing the search's
+     * arrays where they are large enough.
+     */
+    public void refresh()
+    {
+    	if (this.g instanceof Graph<?, ?>)
+    		this.frozenAt = ((Graph<?, ?>) this.g).modificationCount();
+    	this.frozen = this.g.freeze();
+    	if (this.search == null)
+    		this.search = new IntDepthFirstSearch(this.frozen);
+    	else
+    		this.search.reset(this.frozen);
     }
 
     private class DFSIterator implements Iterator<Vertex<V, E>>
@@ -123,6 +141,7 @@ public class DepthFirstSearch<V extends Comparable<V>, E extends Comparable<E>>
         public DFSIterator(boolean verbose)
         {
         	this.verbose = verbose;
+        	frozenTimes = false;
         	time = -1;
         	vertexIter = g.vertexSet().iterator();
 
@@ -232,16 +251,20 @@ public class DepthFirstSearch<V extends Comparable<V>, E extends Comparable<E>>
             return this.previousVertex;
         }
 
+        @SuppressWarnings("unchecked")
         public void remove()
         {
-        	g.removeVertex(this.previousVertex);
+        	if (!(g instanceof Graph<?, ?>))
+        		throw new UnsupportedOperationException("Cannot remove from a read-only graph.");
+
+        	((Graph<V, E>) g).removeVertex(this.previousVertex);
         }
 
         private void setNextVertex(Vertex<V, E> v)
         {
         	this.nextVertex = v;
             vertexTimings.get(this.nextVertex)[0] = ++time;
-            this.edgeIters.add(new AbstractMap.SimpleEntry<Vertex<V, E>, Iterator<Edge<V, E>>>(this.nextVertex, this.nextVertex.edgesOf().iterator()));
+            this.edgeIters.add(new AbstractMap.SimpleEntry<Vertex<V, E>, Iterator<Edge<V, E>>>(this.nextVertex, g.outgoingEdgesOf(this.nextVertex).iterator()));
         }
 
     }
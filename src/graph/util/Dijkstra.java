@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * Shortest paths by Dijkstra's algorithm over the vertex ids and arc weights
+ * of an {@link IntGraph}, such as a {@link graph.Graph#freeze() frozen}
+ * {@link graph.Graph}.
+ * <p>
+ * Distances and predecessors are kept in primitive arrays indexed by vertex
+ * id and the queue is an {@link IndexedHeap}, so a query allocates nothing
+ * beyond the path it returns. Only the vertices touched by the last query
+ * are reset by the next, so short point-to-point queries stay cheap on a
+ * large graph.
+ */
+public class Dijkstra implements ShortestPaths
+{
+	private final IntGraph g;
+	private final IndexedHeap heap;
+
+	private final double[] distance;
+	private final int[] predecessor;
+	private final int[] predecessorArc;
+	private final int[] touched;
+	private int touchedCount = 0;
+
+	private int source = -1;
+
+	public Dijkstra(IntGraph g)
+	{
+		this.g = g;
+
+		int n = g.vertexCount();
+		this.heap = new IndexedHeap(n);
+		this.distance = new double[n];
+		this.predecessor = new int[n];
+		this.predecessorArc = new int[n];
+		this.touched = new int[n];
+
+		Arrays.fill(this.distance, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.predecessor, -1);
+		Arrays.fill(this.predecessorArc, -1);
+	}
+
+	/**
+	 * Finds the distance from {@code source} to every vertex.
+	 */
+	public void run(int source)
+	{
+		this.search(source, -1);
+	}
+
+	/**
+	 * Finds the distance from {@code source} to {@code target}, stopping once
+	 * it is settled. Vertices settled before it keep their distances too.
+	 *
+	 * @return the distance, or {@link Double#POSITIVE_INFINITY} if
+	 *         {@code target} cannot be reached.
+	 */
+	public double run(int source, int target)
+	{
+		this.search(source, target);
+		return this.distance[target];
+	}
+
+	/**
+	 * Settles vertices in order of distance until the heap empties or
+	 * {@code target} is settled.
+	 */
+	private void search(int source, int target)
+	{
+		this.clear();
+		this.source = source;
+
+		IntGraph graph = this.g;
+		IndexedHeap heap = this.heap;
+		double[] distance = this.distance;
+
+		this.touch(source);
+		distance[source] = 0;
+		heap.offer(source, 0);
+
+		while (!heap.isEmpty())
+		{
+			double d = heap.peekKey();
+			int u = heap.poll();
+			if (u == target)
+				break;
+
+			int end = graph.lastArc(u);
+			for (int arc = graph.firstArc(u); arc < end; arc++)
+			{
+				double w = graph.weight(arc);
+				if (w < 0)
+					throw new IllegalArgumentException("negative weight on edge " + graph.edgeId(arc) + ".");
+
+				int v = graph.target(arc);
+				double dv = d + w;
+				if (dv < distance[v])
+				{
+					if (distance[v] == Double.POSITIVE_INFINITY)
+						this.touch(v);
+					distance[v] = dv;
+					this.predecessor[v] = u;
+					this.predecessorArc[v] = arc;
+					heap.offer(v, dv);
+				}
+			}
+		}
+	}
+
+	private void touch(int v)
+	{
+		this.touched[this.touchedCount++] = v;
+	}
+
+	private void clear()
+	{
+		for (int i = 0; i < this.touchedCount; i++)
+		{
+			int v = this.touched[i];
+			this.distance[v] = Double.POSITIVE_INFINITY;
+			this.predecessor[v] = -1;
+			this.predecessorArc[v] = -1;
+		}
+
+		this.touchedCount = 0;
+		this.heap.clear();
+	}
+
+	/**
+	 * @return the distance to {@code v} found by the last run, or
+	 *         {@link Double#POSITIVE_INFINITY} if it was not reached.
+	 */
+	public double distance(int v)
+	{
+		return this.distance[v];
+	}
+
+	/**
+	 * @return the vertex before {@code v} on its shortest path, or {@code -1}
+	 *         for the source and unreached vertices.
+	 */
+	public int predecessor(int v)
+	{
+		return this.predecessor[v];
+	}
+
+	/**
+	 * @return the arc into {@code v} on its shortest path, or {@code -1} for
+	 *         the source and unreached vertices. {@link IntGraph#edgeId} maps
+	 *         it to an edge.
+	 */
+	public int predecessorArc(int v)
+	{
+		return this.predecessorArc[v];
+	}
+
+	/**
+	 * @return the vertices on the shortest path from the last source to
+	 *         {@code target}, both included, or null if it was not reached.
+	 */
+	public int[] path(int target)
+	{
+		if (this.distance[target] == Double.POSITIVE_INFINITY)
+			return null;
+
+		int length = 1;
+		for (int v = target; v != this.source; v = this.predecessor(v))
+			length++;
+
+		int[] path = new int[length];
+		for (int v = target, i = length - 1; i >= 0; v = this.predecessor(v), i--)
+			path[i] = v;
+
+		return path;
+	}
+}
@@ -0,0 +1,307 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.ConcurrentGraph;
+import graph.Edge;
+import graph.Graph;
+import graph.GraphListener;
+import graph.Vertex;
+
+import java.util.*;
+
+/**
+ * The connected components of a {@link Graph}, kept up to date as edges and
+ * vertices are added and removed. Arc directions are ignored.
+ * <p>
+ * A spanning forest of the graph is kept alongside it. An edge joining two
+ * components becomes a forest edge, and the smaller component is relabelled
+ * into the larger by a walk of its tree. Removing a forest edge splits its
+ * tree in two; both halves are walked in step until the smaller is known,
+ * and the edges of the smaller half are searched for one that joins it to
+ * the other. That edge replaces the removed one, or else the smaller half
+ * becomes a component of its own. Other removals cost nothing.
+ * <p>
+ * The components listen to the graph from construction until
+ * {@link #detach()}, and must be used by one thread at a time, like the
+ * graph. A {@link ConcurrentGraph} is not supported.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public class DynamicConnectivity<V, E> implements GraphListener<V, E>
+{
+	private final Graph<V, E> g;
+
+	private final HashMap<Vertex<V, E>, Node<V, E>> nodes = new HashMap<Vertex<V, E>, Node<V, E>>();
+	private final Set<Edge<V, E>> live = Collections.newSetFromMap(new IdentityHashMap<Edge<V, E>, Boolean>());
+	private final Set<Edge<V, E>> forest = Collections.newSetFromMap(new IdentityHashMap<Edge<V, E>, Boolean>());
+	private int componentCount = 0;
+	private int stamp = 0;
+
+	public DynamicConnectivity(Graph<V, E> g)
+	{
+		if (g instanceof ConcurrentGraph<?, ?>)
+			throw new IllegalArgumentException("concurrent graphs are not supported.");
+
+		this.g = g;
+
+		Iterator<Vertex<V, E>> vi = g.vertexSet().iterator();
+		while (vi.hasNext())
+			this.vertexAdded(vi.next());
+
+		Iterator<Edge<V, E>> ei = g.edgeSet().iterator();
+		while (ei.hasNext())
+			this.edgeAdded(ei.next());
+
+		g.addGraphListener(this);
+	}
+
+	/**
+	 * Stops following changes to the graph.
+	 */
+	public void detach()
+	{
+		this.g.removeGraphListener(this);
+	}
+
+	/**
+	 * A vertex, its component and its forest neighbours.
+	 */
+	private static class Node<V, E>
+	{
+		final Vertex<V, E> vertex;
+		final ArrayList<Node<V, E>> tree = new ArrayList<Node<V, E>>(2);
+		Component component = new Component();
+		int mark = 0;
+
+		Node(Vertex<V, E> vertex)
+		{
+			this.vertex = vertex;
+		}
+	}
+
+	private static class Component
+	{
+		int size = 1;
+	}
+
+	public void vertexAdded(Vertex<V, E> v)
+	{
+		if (this.nodes.containsKey(v))
+			return;
+
+		this.nodes.put(v, new Node<V, E>(v));
+		this.componentCount++;
+	}
+
+	/**
+	 * Every edge of {@code v} has been reported removed already, so it is
+	 * alone in its component.
+	 */
+	public void vertexRemoved(Vertex<V, E> v)
+	{
+		if (this.nodes.remove(v) != null)
+			this.componentCount--;
+	}
+
+	public void edgeAdded(Edge<V, E> e)
+	{
+		this.live.add(e);
+
+		Node<V, E> a = this.nodes.get(e.getSourceVertex());
+		Node<V, E> b = this.nodes.get(e.getTargetVertex());
+		if (a.component == b.component)
+			return;
+
+		if (a.component.size < b.component.size)
+			this.relabel(a, b.component);
+		else
+			this.relabel(b, a.component);
+
+		this.link(a, b, e);
+		this.componentCount--;
+	}
+
+	public void edgeRemoved(Edge<V, E> e)
+	{
+		this.live.remove(e);
+		if (!this.forest.remove(e))
+			return;
+
+		Node<V, E> a = this.nodes.get(e.getSourceVertex());
+		Node<V, E> b = this.nodes.get(e.getTargetVertex());
+		a.tree.remove(b);
+		b.tree.remove(a);
+
+		ArrayList<Node<V, E>> smaller = this.smallerHalf(a, b);
+		int inside = smaller.get(0).mark;
+
+		for (int i = 0; i < smaller.size(); i++)
+		{
+			Node<V, E> x = smaller.get(i);
+			Iterator<Edge<V, E>> edges = x.vertex.edgesOf().iterator();
+			while (edges.hasNext())
+			{
+				Edge<V, E> candidate = edges.next();
+				if (!this.live.contains(candidate) || this.forest.contains(candidate))
+					continue;
+
+				Node<V, E> y = this.nodes.get(candidate.getSourceVertex().equals(x.vertex) ? candidate.getTargetVertex()
+					: candidate.getSourceVertex());
+				if (y.mark != inside)
+				{
+					this.link(x, y, candidate);
+					return;
+				}
+			}
+		}
+
+		// no edge crosses, so the smaller half splits off
+		Component split = new Component();
+		split.size = smaller.size();
+		a.component.size -= split.size;
+		for (int i = 0; i < smaller.size(); i++)
+			smaller.get(i).component = split;
+		this.componentCount++;
+	}
+
+	private void link(Node<V, E> a, Node<V, E> b, Edge<V, E> e)
+	{
+		a.tree.add(b);
+		b.tree.add(a);
+		this.forest.add(e);
+	}
+
+	/**
+	 * Moves the tree holding {@code root} into {@code target}.
+	 */
+	private void relabel(Node<V, E> root, Component target)
+	{
+		ArrayList<Node<V, E>> members = this.walk(root);
+		for (int i = 0; i < members.size(); i++)
+			members.get(i).component = target;
+
+		target.size += members.size();
+	}
+
+	/**
+	 * @return every node in the tree holding {@code root}, each marked with
+	 *         a new stamp.
+	 */
+	private ArrayList<Node<V, E>> walk(Node<V, E> root)
+	{
+		int mark = ++this.stamp;
+		ArrayList<Node<V, E>> found = new ArrayList<Node<V, E>>();
+		root.mark = mark;
+		found.add(root);
+
+		for (int i = 0; i < found.size(); i++)
+		{
+			Node<V, E> x = found.get(i);
+			for (int j = 0; j < x.tree.size(); j++)
+			{
+				Node<V, E> y = x.tree.get(j);
+				if (y.mark != mark)
+				{
+					y.mark = mark;
+					found.add(y);
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Walks the trees holding {@code a} and {@code b} one node at a time
+	 * each, stopping once either is exhausted.
+	 *
+	 * @return every node of the smaller tree, each marked with the same new
+	 *         stamp.
+	 */
+	private ArrayList<Node<V, E>> smallerHalf(Node<V, E> a, Node<V, E> b)
+	{
+		int markA = ++this.stamp, markB = ++this.stamp;
+		ArrayList<Node<V, E>> foundA = new ArrayList<Node<V, E>>(), foundB = new ArrayList<Node<V, E>>();
+		a.mark = markA;
+		b.mark = markB;
+		foundA.add(a);
+		foundB.add(b);
+
+		int nextA = 0, nextB = 0;
+		while (true)
+		{
+			if (nextA == foundA.size())
+				return foundA;
+			nextA = this.expand(foundA, nextA, markA);
+
+			if (nextB == foundB.size())
+				return foundB;
+			nextB = this.expand(foundB, nextB, markB);
+		}
+	}
+
+	/**
+	 * Adds the unmarked tree neighbours of {@code found[next]} to
+	 * {@code found}, marking them.
+	 *
+	 * @return the index of the next node to expand.
+	 */
+	private int expand(ArrayList<Node<V, E>> found, int next, int mark)
+	{
+		Node<V, E> x = found.get(next);
+		for (int j = 0; j < x.tree.size(); j++)
+		{
+			Node<V, E> y = x.tree.get(j);
+			if (y.mark != mark)
+			{
+				y.mark = mark;
+				found.add(y);
+			}
+		}
+
+		return next + 1;
+	}
+
+	private Node<V, E> node(Vertex<V, E> v)
+	{
+		Node<V, E> node = this.nodes.get(v);
+		if (node == null)
+			throw new IllegalArgumentException("vertex not found in graph.");
+
+		return node;
+	}
+
+	/**
+	 * @return true if a path joins {@code a} and {@code b}.
+	 */
+	public boolean connected(Vertex<V, E> a, Vertex<V, E> b)
+	{
+		return this.node(a).component == this.node(b).component;
+	}
+
+	/**
+	 * @return the number of vertices in the component of {@code v}.
+	 */
+	public int componentSize(Vertex<V, E> v)
+	{
+		return this.node(v).component.size;
+	}
+
+	public int componentCount()
+	{
+		return this.componentCount;
+	}
+}
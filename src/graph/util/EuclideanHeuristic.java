@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.CsrGraph;
+import graph.decorations.DecorationKey;
+
+/**
+ * The straight-line distance between vertices, read once from coordinate
+ * decorations on the vertices of a {@link CsrGraph}. Vertices without both
+ * coordinates are estimated to be {@code 0} from everything.
+ */
+public class EuclideanHeuristic implements Heuristic
+{
+	private final double[] x;
+	private final double[] y;
+	private final double scale;
+
+	public <V, E> EuclideanHeuristic(CsrGraph<V, E> g, DecorationKey<Double> xKey, DecorationKey<Double> yKey)
+	{
+		this(g, xKey, yKey, 1);
+	}
+
+	/**
+	 * @param scale multiplies every distance, for weights that are not in
+	 *        the units of the coordinates, such as travel times.
+	 */
+	public <V, E> EuclideanHeuristic(CsrGraph<V, E> g, DecorationKey<Double> xKey, DecorationKey<Double> yKey,
+		double scale)
+	{
+		int n = g.vertexCount();
+		this.x = new double[n];
+		this.y = new double[n];
+		this.scale = scale;
+
+		for (int v = 0; v < n; v++)
+		{
+			this.x[v] = g.vertex(v).getDouble(xKey);
+			this.y[v] = g.vertex(v).getDouble(yKey);
+		}
+	}
+
+	public double estimate(int v, int target)
+	{
+		double dx = this.x[v] - this.x[target];
+		double dy = this.y[v] - this.y[target];
+		double d = Math.sqrt(dx * dx + dy * dy);
+
+		// NaN when either end lacks coordinates
+		return (d == d) ? d * this.scale : 0;
+	}
+}
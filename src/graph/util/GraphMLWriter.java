@@ -14,7 +14,7 @@
 package graph.util;
 
 import graph.Edge;
-import graph.Graph;
+import graph.GraphView;
 import graph.Vertex;
 import graph.decorations.ReadDecorations;
 
@@ -27,6 +27,7 @@ public class GraphMLWriter implements Closeable
 
 	private HashMap<String, LinkedList<String>> dataKeys = new HashMap<String, LinkedList<String>>();
 	private boolean graphLineWritten = false;
+	private boolean directed = false;
 
 	private String header = "<?xml version=\"1.0\" encoding=\"UTF-8\"?> \n" +
 							"<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\"> \n";
@@ -143,8 +144,19 @@ public class GraphMLWriter implements Closeable
 		return this;
 	}
 
-	public GraphMLWriter writeGraph(Graph<?, ?> g)
+	/**
+	 * Sets the {@code edgedefault} of the graph, for callers that write
+	 * vertices and edges one at a time. Must be called before the first.
+	 */
+	public GraphMLWriter setDirected(boolean isDirected)
 	{
+		this.directed = isDirected;
+		return this;
+	}
+
+	public GraphMLWriter writeGraph(GraphView<?, ?> g)
+	{
+		this.setDirected(g.isDirected());
 		this.writeDecorations(g.vertexSet(), "node");
 		this.writeDecorations(g.edgeSet(), "edge");
 		this.writeVertices(g.vertexSet());
@@ -157,7 +169,7 @@ public class GraphMLWriter implements Closeable
 	{
 		if (!this.graphLineWritten)
 		{
-			this.writeGraphLine(false);
+			this.writeGraphLine(this.directed);
 			this.graphLineWritten = true;
 		}
 	}
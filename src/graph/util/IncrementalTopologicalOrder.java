@@ -0,0 +1,389 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.CsrGraph;
+import graph.Edge;
+import graph.Graph;
+import graph.GraphListener;
+import graph.Vertex;
+
+import java.util.*;
+
+/**
+ * A topological order of a directed {@link Graph} kept up to date as edges
+ * are added, by the algorithm of Pearce and Kelly. An edge that already
+ * agrees with the order costs nothing. Otherwise only the vertices between
+ * its ends in the order are searched: those reachable from its target and
+ * those reaching its source, which swap places among the positions they
+ * held.
+ * <p>
+ * An edge that closes a cycle leaves the graph without an order until
+ * enough edges are removed to break every cycle; meanwhile the first query
+ * after a removal re-sorts the whole graph. {@link #wouldCloseCycle} tells
+ * beforehand.
+ * <p>
+ * The order listens to the graph from construction until {@link #detach()},
+ * and must be used by one thread at a time, like the graph.
+ *
+ * @param <V> The class that the Vertex value holds.
+ * @param <E> The class that the Edge value holds.
+ */
+public class IncrementalTopologicalOrder<V, E> implements GraphListener<V, E>
+{
+	private final Graph<V, E> g;
+
+	// each vertex has a slot; ord maps slots to positions and at positions
+	// to slots, with -1 where a removed vertex was
+	private final HashMap<Vertex<V, E>, Integer> slots = new HashMap<Vertex<V, E>, Integer>();
+	private final ArrayList<Vertex<V, E>> vertexOf = new ArrayList<Vertex<V, E>>();
+	private int[] freeSlots = new int[16];
+	private int freeCount = 0;
+	private int[] ord = new int[16];
+	private int[] at = new int[16];
+	private int positions = 0;
+	private int holes = 0;
+
+	private int[] visited = new int[16];
+	private int stamp = 0;
+	private final Stack<Iterator<Edge<V, E>>> stack = new Stack<Iterator<Edge<V, E>>>();
+	private long[] forward = new long[16];
+	private long[] backward = new long[16];
+
+	private boolean cyclic = false;
+
+	// set when an edge leaves a cyclic graph, which is sorted again on the
+	// next query rather than while the graph is still changing
+	private boolean stale = false;
+
+	public IncrementalTopologicalOrder(Graph<V, E> g)
+	{
+		if (!g.isDirected())
+			throw new IllegalArgumentException("graph must be directed.");
+
+		this.g = g;
+		this.rebuild();
+		g.addGraphListener(this);
+	}
+
+	/**
+	 * Stops following changes to the graph.
+	 */
+	public void detach()
+	{
+		this.g.removeGraphListener(this);
+	}
+
+	/**
+	 * Sorts the whole graph again from its DFS finish times.
+	 */
+	private void rebuild()
+	{
+		CsrGraph<V, E> frozen = this.g.freeze();
+		TopologicalSort sort = new TopologicalSort(frozen);
+		this.cyclic = !sort.run();
+
+		this.slots.clear();
+		this.vertexOf.clear();
+		this.freeCount = 0;
+		this.positions = 0;
+		this.holes = 0;
+
+		int n = frozen.vertexCount();
+		for (int i = 0; i < n; i++)
+		{
+			int v = this.cyclic ? i : sort.order()[i];
+			this.append(frozen.vertex(v));
+		}
+	}
+
+	private void refresh()
+	{
+		if (this.stale)
+		{
+			this.stale = false;
+			this.rebuild();
+		}
+	}
+
+	/**
+	 * Gives {@code v} a slot at the end of the order.
+	 */
+	private void append(Vertex<V, E> v)
+	{
+		int slot;
+		if (this.freeCount > 0)
+		{
+			slot = this.freeSlots[--this.freeCount];
+			this.vertexOf.set(slot, v);
+		}
+		else
+		{
+			slot = this.vertexOf.size();
+			this.vertexOf.add(v);
+			if (slot == this.ord.length)
+			{
+				this.ord = Arrays.copyOf(this.ord, slot * 2);
+				this.visited = Arrays.copyOf(this.visited, slot * 2);
+			}
+		}
+
+		if (this.positions == this.at.length)
+			this.at = Arrays.copyOf(this.at, this.positions * 2);
+
+		this.slots.put(v, slot);
+		this.ord[slot] = this.positions;
+		this.at[this.positions++] = slot;
+	}
+
+	/**
+	 * Closes up the positions left by removed vertices.
+	 */
+	private void compact()
+	{
+		int next = 0;
+		for (int p = 0; p < this.positions; p++)
+		{
+			int slot = this.at[p];
+			if (slot < 0)
+				continue;
+
+			this.ord[slot] = next;
+			this.at[next++] = slot;
+		}
+
+		this.positions = next;
+		this.holes = 0;
+	}
+
+	public void vertexAdded(Vertex<V, E> v)
+	{
+		this.append(v);
+	}
+
+	public void vertexRemoved(Vertex<V, E> v)
+	{
+		Integer slot = this.slots.remove(v);
+		if (slot == null)
+			return;
+
+		this.at[this.ord[slot]] = -1;
+		this.vertexOf.set(slot, null);
+		if (this.freeCount == this.freeSlots.length)
+			this.freeSlots = Arrays.copyOf(this.freeSlots, this.freeCount * 2);
+		this.freeSlots[this.freeCount++] = slot;
+
+		if (++this.holes > this.slots.size())
+			this.compact();
+	}
+
+	public void edgeAdded(Edge<V, E> e)
+	{
+		if (this.cyclic)
+			return;
+
+		int x = this.slots.get(e.getSourceVertex());
+		int y = this.slots.get(e.getTargetVertex());
+		int lower = this.ord[y], upper = this.ord[x];
+		if (lower > upper)
+			return;
+
+		// the vertices the edge may have put out of order
+		int forwardCount = this.search(y, upper, true, x);
+		if (forwardCount < 0)
+		{
+			this.cyclic = true;
+			return;
+		}
+		int backwardCount = this.search(x, lower, false, -1);
+
+		this.reorder(forwardCount, backwardCount);
+	}
+
+	public void edgeRemoved(Edge<V, E> e)
+	{
+		if (this.cyclic)
+			this.stale = true;
+	}
+
+	/**
+	 * @return true if an edge from {@code source} to {@code target} would
+	 *         close a cycle.
+	 */
+	public boolean wouldCloseCycle(Vertex<V, E> source, Vertex<V, E> target)
+	{
+		this.refresh();
+		if (this.cyclic)
+			return true;
+
+		int x = this.slot(source), y = this.slot(target);
+		if (this.ord[y] > this.ord[x])
+			return false;
+
+		return this.search(y, this.ord[x], true, x) < 0;
+	}
+
+	/**
+	 * Searches forwards from {@code root} through vertices positioned before
+	 * {@code bound}, or backwards through vertices positioned after it,
+	 * recording each vertex found as its position and slot in
+	 * {@link #forward} or {@link #backward}.
+	 *
+	 * @return the number of vertices found, or {@code -1} if {@code goal} was
+	 *         one of them.
+	 */
+	private int search(int root, int bound, boolean forwards, int goal)
+	{
+		if (root == goal)
+			return -1;
+
+		int mark = ++this.stamp;
+		this.visited[root] = mark;
+		int count = this.record(forwards, 0, root);
+		this.stack.push(this.next(root, forwards));
+
+		while (!this.stack.isEmpty())
+		{
+			Iterator<Edge<V, E>> edges = this.stack.peek();
+			if (!edges.hasNext())
+			{
+				this.stack.pop();
+				continue;
+			}
+
+			Edge<V, E> e = edges.next();
+			int w = this.slots.get(forwards ? e.getTargetVertex() : e.getSourceVertex());
+			if (w == goal)
+			{
+				this.stack.clear();
+				return -1;
+			}
+
+			if (this.visited[w] == mark || (forwards ? this.ord[w] > bound : this.ord[w] < bound))
+				continue;
+
+			this.visited[w] = mark;
+			count = this.record(forwards, count, w);
+			this.stack.push(this.next(w, forwards));
+		}
+
+		return count;
+	}
+
+	private Iterator<Edge<V, E>> next(int slot, boolean forwards)
+	{
+		Vertex<V, E> v = this.vertexOf.get(slot);
+		return (forwards ? this.g.outgoingEdgesOf(v) : this.g.incomingEdgesOf(v)).iterator();
+	}
+
+	private int record(boolean forwards, int count, int slot)
+	{
+		long entry = ((long) this.ord[slot] << 32) | slot;
+		if (forwards)
+		{
+			if (count == this.forward.length)
+				this.forward = Arrays.copyOf(this.forward, count * 2);
+			this.forward[count] = entry;
+		}
+		else
+		{
+			if (count == this.backward.length)
+				this.backward = Arrays.copyOf(this.backward, count * 2);
+			this.backward[count] = entry;
+		}
+
+		return count + 1;
+	}
+
+	/**
+	 * Puts the vertices found backwards ahead of those found forwards, in
+	 * the positions they held between them, keeping each group's own order.
+	 */
+	private void reorder(int forwardCount, int backwardCount)
+	{
+		Arrays.sort(this.forward, 0, forwardCount);
+		Arrays.sort(this.backward, 0, backwardCount);
+
+		int[] pool = new int[forwardCount + backwardCount];
+		int i = 0, j = 0, k = 0;
+		while (i < backwardCount || j < forwardCount)
+		{
+			if (j == forwardCount || (i < backwardCount && this.backward[i] < this.forward[j]))
+				pool[k++] = (int) (this.backward[i++] >>> 32);
+			else
+				pool[k++] = (int) (this.forward[j++] >>> 32);
+		}
+
+		k = 0;
+		for (i = 0; i < backwardCount; i++)
+			this.place((int) this.backward[i], pool[k++]);
+		for (j = 0; j < forwardCount; j++)
+			this.place((int) this.forward[j], pool[k++]);
+	}
+
+	private void place(int slot, int position)
+	{
+		this.ord[slot] = position;
+		this.at[position] = slot;
+	}
+
+	private int slot(Vertex<V, E> v)
+	{
+		Integer slot = this.slots.get(v);
+		if (slot == null)
+			throw new IllegalArgumentException("vertex not found in graph.");
+
+		return slot;
+	}
+
+	/**
+	 * @return true if the graph has a cycle, and so no order.
+	 */
+	public boolean isCyclic()
+	{
+		this.refresh();
+		return this.cyclic;
+	}
+
+	/**
+	 * @return true if {@code a} comes before {@code b} in the order.
+	 * @throws IllegalStateException if the graph has a cycle.
+	 */
+	public boolean precedes(Vertex<V, E> a, Vertex<V, E> b)
+	{
+		this.refresh();
+		if (this.cyclic)
+			throw new IllegalStateException("graph has a cycle.");
+
+		return this.ord[this.slot(a)] < this.ord[this.slot(b)];
+	}
+
+	/**
+	 * @return the graph's vertices in topological order.
+	 * @throws IllegalStateException if the graph has a cycle.
+	 */
+	public List<Vertex<V, E>> order()
+	{
+		this.refresh();
+		if (this.cyclic)
+			throw new IllegalStateException("graph has a cycle.");
+
+		ArrayList<Vertex<V, E>> order = new ArrayList<Vertex<V, E>>(this.slots.size());
+		for (int p = 0; p < this.positions; p++)
+			if (this.at[p] >= 0)
+				order.add(this.vertexOf.get(this.at[p]));
+
+		return order;
+	}
+}
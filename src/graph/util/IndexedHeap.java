@@ -0,0 +1,186 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A d-ary min-heap of {@code int} ids from {@code 0} to {@code capacity - 1}
+ * with {@code double} keys. The position of every id is tracked, so a key can
+ * be lowered in place, and nothing is allocated after construction.
+ */
+class IndexedHeap
+{
+	private final int arity;
+
+	private final int[] ids;
+	private final double[] keys;
+	private final int[] positions;
+	private int size = 0;
+
+	IndexedHeap(int capacity)
+	{
+		this(capacity, 4);
+	}
+
+	IndexedHeap(int capacity, int arity)
+	{
+		if (arity < 2)
+			throw new IllegalArgumentException("arity must be at least 2.");
+
+		this.arity = arity;
+		this.ids = new int[capacity];
+		this.keys = new double[capacity];
+		this.positions = new int[capacity];
+		Arrays.fill(this.positions, -1);
+	}
+
+	int size()
+	{
+		return this.size;
+	}
+
+	boolean isEmpty()
+	{
+		return this.size == 0;
+	}
+
+	boolean contains(int id)
+	{
+		return this.positions[id] >= 0;
+	}
+
+	/**
+	 * Empties the heap in time proportional to its size.
+	 */
+	void clear()
+	{
+		for (int i = 0; i < this.size; i++)
+			this.positions[this.ids[i]] = -1;
+		this.size = 0;
+	}
+
+	/**
+	 * Inserts {@code id}, or lowers its key if it is already held.
+	 *
+	 * @return false if {@code id} was held with a key no greater than
+	 *         {@code key}.
+	 */
+	boolean offer(int id, double key)
+	{
+		int i = this.positions[id];
+		if (i < 0)
+			i = this.size++;
+		else if (this.keys[i] <= key)
+			return false;
+
+		this.siftUp(i, id, key);
+		return true;
+	}
+
+	/**
+	 * @return the id with the least key.
+	 */
+	int peek()
+	{
+		if (this.size == 0)
+			throw new NoSuchElementException();
+
+		return this.ids[0];
+	}
+
+	/**
+	 * @return the least key.
+	 */
+	double peekKey()
+	{
+		if (this.size == 0)
+			throw new NoSuchElementException();
+
+		return this.keys[0];
+	}
+
+	/**
+	 * @return the key of {@code id}, which must be held.
+	 */
+	double key(int id)
+	{
+		return this.keys[this.positions[id]];
+	}
+
+	/**
+	 * Removes and returns the id with the least key.
+	 */
+	int poll()
+	{
+		if (this.size == 0)
+			throw new NoSuchElementException();
+
+		int min = this.ids[0];
+		this.positions[min] = -1;
+
+		int last = --this.size;
+		if (last > 0)
+			this.siftDown(0, this.ids[last], this.keys[last]);
+
+		return min;
+	}
+
+	private void siftUp(int i, int id, double key)
+	{
+		while (i > 0)
+		{
+			int up = (i - 1) / this.arity;
+			if (this.keys[up] <= key)
+				break;
+
+			this.place(i, this.ids[up], this.keys[up]);
+			i = up;
+		}
+
+		this.place(i, id, key);
+	}
+
+	private void siftDown(int i, int id, double key)
+	{
+		while (true)
+		{
+			int first = i * this.arity + 1;
+			if (first >= this.size)
+				break;
+
+			int least = first;
+			int end = Math.min(first + this.arity, this.size);
+			for (int c = first + 1; c < end; c++)
+				if (this.keys[c] < this.keys[least])
+					least = c;
+
+			if (this.keys[least] >= key)
+				break;
+
+			this.place(i, this.ids[least], this.keys[least]);
+			i = least;
+		}
+
+		this.place(i, id, key);
+	}
+
+	private void place(int i, int id, double key)
+	{
+		this.ids[i] = id;
+		this.keys[i] = key;
+		this.positions[id] = i;
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Depth-first search over the vertex ids of an {@link IntGraph}, following
+ * the arcs leaving each vertex. The search keeps an explicit stack, so long
+ * paths cannot overflow the call stack, and records discovery and finish
+ * times in {@code int} arrays indexed by vertex id.
+ * <p>
+ * Times count from {@code 0}, one tick per discovery and one per finish.
+ * An instance may be run again, or {@link #reset(IntGraph) reset} to another
+ * graph, without reallocating unless the new graph is larger.
+ */
+public class IntDepthFirstSearch
+{
+	private IntGraph g;
+
+	private int[] start = new int[0];
+	private int[] finish = new int[0];
+
+	// the stack holds each open vertex and the next of its arcs to follow
+	private int[] stackVertex = new int[0];
+	private int[] stackArc = new int[0];
+
+	private int time = -1;
+	private PrintStream trace = null;
+
+	public IntDepthFirstSearch(IntGraph newG)
+	{
+		this.reset(newG);
+	}
+
+	/**
+	 * Switches to {@code newG} and forgets all times.
+	 */
+	public void reset(IntGraph newG)
+	{
+		this.g = newG;
+
+		int n = newG.vertexCount();
+		if (this.start.length < n)
+		{
+			this.start = new int[n];
+			this.finish = new int[n];
+			this.stackVertex = new int[n];
+			this.stackArc = new int[n];
+		}
+
+		this.clear();
+	}
+
+	private void clear()
+	{
+		int n = this.g.vertexCount();
+		Arrays.fill(this.start, 0, n, -1);
+		Arrays.fill(this.finish, 0, n, -1);
+		this.time = -1;
+	}
+
+	/**
+	 * Prints each discovery and finish to {@code out}, or nothing if it is
+	 * null.
+	 */
+	public void setTrace(PrintStream out)
+	{
+		this.trace = out;
+	}
+
+	/**
+	 * Searches from every vertex in id order.
+	 *
+	 * @return the last time stamped.
+	 */
+	public int run()
+	{
+		return this.run(-1);
+	}
+
+	/**
+	 * Searches from {@code root} first, then from every vertex it did not
+	 * reach, in id order. A negative {@code root} is ignored.
+	 *
+	 * @return the last time stamped.
+	 */
+	public int run(int root)
+	{
+		this.clear();
+		if (root >= 0)
+			this.visit(root);
+
+		int n = this.g.vertexCount();
+		for (int v = 0; v < n; v++)
+			this.visit(v);
+
+		return this.time;
+	}
+
+	/**
+	 * Searches from {@code root} if it has not been discovered yet, keeping
+	 * the times of earlier searches since the last {@link #run()} or
+	 * {@link #reset(IntGraph)}.
+	 *
+	 * @return the last time stamped.
+	 */
+	public int visit(int root)
+	{
+		if (this.start[root] != -1)
+			return this.time;
+
+		IntGraph graph = this.g;
+		int[] start = this.start;
+		int[] stackVertex = this.stackVertex;
+		int[] stackArc = this.stackArc;
+
+		int depth = 0;
+		stackVertex[0] = root;
+		stackArc[0] = graph.firstArc(root);
+		start[root] = ++this.time;
+		this.traceStart(root);
+
+		while (depth >= 0)
+		{
+			int v = stackVertex[depth];
+			int arc = stackArc[depth];
+			int end = graph.lastArc(v);
+
+			while (arc < end && start[graph.target(arc)] != -1)
+				arc++;
+
+			if (arc < end)
+			{
+				int w = graph.target(arc);
+				stackArc[depth] = arc + 1;
+
+				depth++;
+				stackVertex[depth] = w;
+				stackArc[depth] = graph.firstArc(w);
+				start[w] = ++this.time;
+				this.traceStart(w);
+			}
+			else
+			{
+				this.finish[v] = ++this.time;
+				this.traceFinish(v);
+				depth--;
+			}
+		}
+
+		return this.time;
+	}
+
+	private void traceStart(int v)
+	{
+		if (this.trace != null)
+			this.trace.printf("%d = {start: %d}\n", v, this.start[v]);
+	}
+
+	private void traceFinish(int v)
+	{
+		if (this.trace != null)
+			this.trace.printf("%d = {start: %d, finish: %d}\n", v, this.start[v], this.finish[v]);
+	}
+
+	/**
+	 * @return when {@code v} was discovered, or {@code -1} if it was not.
+	 */
+	public int startTime(int v)
+	{
+		return this.start[v];
+	}
+
+	/**
+	 * @return when {@code v} was finished, or {@code -1} if it was not.
+	 */
+	public int finishTime(int v)
+	{
+		return this.finish[v];
+	}
+
+	/**
+	 * @return the last time stamped, or {@code -1} before any search.
+	 */
+	public int time()
+	{
+		return this.time;
+	}
+}
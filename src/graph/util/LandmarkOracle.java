@@ -0,0 +1,355 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Distance bounds between the vertex ids of an {@link IntGraph} from the
+ * distances of every vertex to and from a few landmark vertices, answered in
+ * time proportional to the number of landmarks.
+ * <p>
+ * By the triangle inequality, the distance from {@code u} to {@code v} is at
+ * most the distance from {@code u} to a landmark plus the distance from the
+ * landmark to {@code v}, and at least the difference of their distances from
+ * (or to) a landmark. Landmarks far out on the periphery give tight bounds;
+ * {@link #byDegree} and {@link #random} pick them cheaply.
+ * <p>
+ * Distances count arcs, found by {@link BreadthFirstSearch}, or add up arc
+ * weights, found by {@link Dijkstra}. They are stored vertex by vertex, as
+ * {@code int}s when counting arcs, and the landmarks are searched in
+ * parallel on a {@link ForkJoinPool}. The index can be saved with
+ * {@link #write(File)} next to the graph it was built from.
+ */
+public class LandmarkOracle
+{
+	private static final int MAGIC = 0x4c4d524b; // "LMRK"
+	private static final int VERSION = 1;
+	private static final int DIRECTED = 1, WEIGHTED = 2;
+
+	private final int n;
+	private final int[] landmarks;
+	private final boolean directed;
+	private final boolean weighted;
+
+	// vertex v's distance with landmark i is at v * landmarks + i; the "to"
+	// arrays are the "from" arrays for an undirected graph
+	private final int[] fromHops;
+	private final int[] toHops;
+	private final double[] fromLengths;
+	private final double[] toLengths;
+
+	public LandmarkOracle(IntGraph g, int[] landmarks, boolean weighted)
+	{
+		this(g, landmarks, weighted, ForkJoinPool.commonPool());
+	}
+
+	public LandmarkOracle(IntGraph g, int[] landmarks, boolean weighted, ForkJoinPool pool)
+	{
+		this(g.vertexCount(), landmarks.clone(), g.isDirected(), weighted);
+		pool.invoke(new Search(g, 0, landmarks.length));
+	}
+
+	private LandmarkOracle(int n, int[] landmarks, boolean directed, boolean weighted)
+	{
+		if ((long) n * landmarks.length > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("too many landmarks for " + n + " vertices.");
+
+		this.n = n;
+		this.landmarks = landmarks;
+		this.directed = directed;
+		this.weighted = weighted;
+
+		int size = n * landmarks.length;
+		this.fromHops = weighted ? null : new int[size];
+		this.toHops = (weighted || !directed) ? this.fromHops : new int[size];
+		this.fromLengths = weighted ? new double[size] : null;
+		this.toLengths = (!weighted || !directed) ? this.fromLengths : new double[size];
+	}
+
+	/**
+	 * @return the {@code count} vertices of highest degree, highest first.
+	 */
+	public static int[] byDegree(IntGraph g, int count)
+	{
+		int n = g.vertexCount();
+		long[] keys = new long[n];
+		for (int v = 0; v < n; v++)
+			keys[v] = ((long) g.degree(v) << 32) | (Integer.MAX_VALUE - v);
+		Arrays.sort(keys);
+
+		count = Math.min(count, n);
+		int[] chosen = new int[count];
+		for (int i = 0; i < count; i++)
+			chosen[i] = Integer.MAX_VALUE - (int) keys[n - 1 - i];
+
+		return chosen;
+	}
+
+	/**
+	 * @return {@code count} distinct vertices chosen at random.
+	 */
+	public static int[] random(IntGraph g, int count, long seed)
+	{
+		int n = g.vertexCount();
+		count = Math.min(count, n);
+
+		// a partial shuffle of the ids
+		int[] ids = new int[n];
+		for (int v = 0; v < n; v++)
+			ids[v] = v;
+
+		Random r = new Random(seed);
+		for (int i = 0; i < count; i++)
+		{
+			int j = i + r.nextInt(n - i);
+			int swap = ids[i];
+			ids[i] = ids[j];
+			ids[j] = swap;
+		}
+
+		return Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * Searches from the landmarks {@code [lo, hi)}, one task each.
+	 */
+	@SuppressWarnings("serial")
+	private class Search extends RecursiveAction
+	{
+		private final IntGraph g;
+		private final int lo;
+		private final int hi;
+
+		Search(IntGraph g, int lo, int hi)
+		{
+			this.g = g;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (this.hi - this.lo > 1)
+			{
+				int mid = (this.lo + this.hi) >>> 1;
+				invokeAll(new Search(this.g, this.lo, mid), new Search(this.g, mid, this.hi));
+				return;
+			}
+
+			if (this.hi == this.lo)
+				return;
+
+			this.record(this.g, this.lo, fromHops, fromLengths);
+			if (directed)
+				this.record(this.g.transpose(), this.lo, toHops, toLengths);
+		}
+
+		private void record(IntGraph graph, int i, int[] hops, double[] lengths)
+		{
+			int k = landmarks.length;
+			if (weighted)
+			{
+				Dijkstra search = new Dijkstra(graph);
+				search.run(landmarks[i]);
+				for (int v = 0; v < n; v++)
+					lengths[v * k + i] = search.distance(v);
+			}
+			else
+			{
+				BreadthFirstSearch search = new BreadthFirstSearch(graph);
+				search.run(landmarks[i]);
+				for (int v = 0; v < n; v++)
+					hops[v * k + i] = search.level(v);
+			}
+		}
+	}
+
+	/**
+	 * @return the distance from landmark {@code i} to {@code v}.
+	 */
+	private double from(int i, int v)
+	{
+		int at = v * this.landmarks.length + i;
+		if (this.weighted)
+			return this.fromLengths[at];
+
+		int hops = this.fromHops[at];
+		return (hops < 0) ? Double.POSITIVE_INFINITY : hops;
+	}
+
+	/**
+	 * @return the distance from {@code v} to landmark {@code i}.
+	 */
+	private double to(int i, int v)
+	{
+		int at = v * this.landmarks.length + i;
+		if (this.weighted)
+			return this.toLengths[at];
+
+		int hops = this.toHops[at];
+		return (hops < 0) ? Double.POSITIVE_INFINITY : hops;
+	}
+
+	/**
+	 * @return the least distance from {@code u} to {@code v} through a
+	 *         landmark, or {@link Double#POSITIVE_INFINITY} if no landmark
+	 *         lies on a path between them.
+	 */
+	public double upperBound(int u, int v)
+	{
+		if (u == v)
+			return 0;
+
+		double best = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < this.landmarks.length; i++)
+			best = Math.min(best, this.to(i, u) + this.from(i, v));
+
+		return best;
+	}
+
+	/**
+	 * @return the greatest lower bound on the distance from {@code u} to
+	 *         {@code v} given by the landmarks, which is
+	 *         {@link Double#POSITIVE_INFINITY} if a landmark proves there is
+	 *         no path.
+	 */
+	public double lowerBound(int u, int v)
+	{
+		if (u == v)
+			return 0;
+
+		double best = 0;
+		for (int i = 0; i < this.landmarks.length; i++)
+		{
+			// NaN, where both distances are infinite, never wins
+			double d = this.from(i, v) - this.from(i, u);
+			if (d > best)
+				best = d;
+			d = this.to(i, u) - this.to(i, v);
+			if (d > best)
+				best = d;
+		}
+
+		return best;
+	}
+
+	/**
+	 * @return the {@link #upperBound(int, int) upper bound}, which is exact
+	 *         whenever a landmark lies on a shortest path.
+	 */
+	public double estimateDistance(int u, int v)
+	{
+		return this.upperBound(u, v);
+	}
+
+	public int vertexCount()
+	{
+		return this.n;
+	}
+
+	public int[] landmarks()
+	{
+		return this.landmarks.clone();
+	}
+
+	/**
+	 * Saves the index in the format read by {@link #read(File)}, replacing
+	 * {@code file} if it exists.
+	 */
+	public void write(File file) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(this.n);
+			out.writeInt(this.landmarks.length);
+			out.writeInt((this.directed ? DIRECTED : 0) | (this.weighted ? WEIGHTED : 0));
+			for (int i = 0; i < this.landmarks.length; i++)
+				out.writeInt(this.landmarks[i]);
+
+			this.writeDistances(out, this.fromHops, this.fromLengths);
+			if (this.directed)
+				this.writeDistances(out, this.toHops, this.toLengths);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private void writeDistances(DataOutputStream out, int[] hops, double[] lengths) throws IOException
+	{
+		if (this.weighted)
+			for (int i = 0; i < lengths.length; i++)
+				out.writeDouble(lengths[i]);
+		else
+			for (int i = 0; i < hops.length; i++)
+				out.writeInt(hops[i]);
+	}
+
+	/**
+	 * Loads an index saved by {@link #write(File)}.
+	 */
+	public static LandmarkOracle read(File file) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try
+		{
+			if (in.readInt() != MAGIC)
+				throw new IOException("not a landmark index file.");
+			if (in.readInt() != VERSION)
+				throw new IOException("unsupported landmark index version.");
+
+			int n = in.readInt();
+			int[] landmarks = new int[in.readInt()];
+			int flags = in.readInt();
+			for (int i = 0; i < landmarks.length; i++)
+				landmarks[i] = in.readInt();
+
+			LandmarkOracle oracle = new LandmarkOracle(n, landmarks, (flags & DIRECTED) != 0, (flags & WEIGHTED) != 0);
+			oracle.readDistances(in, oracle.fromHops, oracle.fromLengths);
+			if (oracle.directed)
+				oracle.readDistances(in, oracle.toHops, oracle.toLengths);
+
+			return oracle;
+		}
+		catch (EOFException e)
+		{
+			throw new IOException("truncated landmark index.");
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	private void readDistances(DataInputStream in, int[] hops, double[] lengths) throws IOException
+	{
+		if (this.weighted)
+			for (int i = 0; i < lengths.length; i++)
+				lengths[i] = in.readDouble();
+		else
+			for (int i = 0; i < hops.length; i++)
+				hops[i] = in.readInt();
+	}
+}
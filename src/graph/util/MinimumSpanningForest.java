@@ -0,0 +1,457 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.CsrGraph;
+import graph.Graph;
+import graph.IntGraph;
+import graph.Vertex;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A minimum spanning forest of an {@link IntGraph}, by Kruskal's algorithm or
+ * by Bor&#367;vka's in parallel on a {@link ForkJoinPool}. Edge directions
+ * are ignored and self loops are never part of the forest.
+ * <p>
+ * Edges are ordered by weight and then by id, so every edge is distinct and
+ * both algorithms find the same forest.
+ */
+public class MinimumSpanningForest
+{
+	/**
+	 * The number of edges or vertices below which a task stops splitting.
+	 */
+	private static final int GRAIN = 8192;
+
+	private final IntGraph g;
+	private final ForkJoinPool pool;
+
+	// each edge's ends and its weight as a long that sorts the same way
+	private final int[] edgeSource;
+	private final int[] edgeTarget;
+	private final long[] edgeKey;
+
+	private final boolean[] inForest;
+	private int[] forest = new int[0];
+	private double weight = 0;
+
+	public MinimumSpanningForest(IntGraph g)
+	{
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	public MinimumSpanningForest(IntGraph g, ForkJoinPool pool)
+	{
+		this.g = g;
+		this.pool = pool;
+
+		int m = g.edgeCount();
+		this.edgeSource = new int[m];
+		this.edgeTarget = new int[m];
+		this.edgeKey = new long[m];
+		this.inForest = new boolean[m];
+
+		Arrays.fill(this.edgeSource, -1);
+		for (int u = 0; u < g.vertexCount(); u++)
+		{
+			for (int arc = g.firstArc(u); arc < g.lastArc(u); arc++)
+			{
+				int e = g.edgeId(arc);
+				if (this.edgeSource[e] != -1)
+					continue;
+
+				this.edgeSource[e] = u;
+				this.edgeTarget[e] = g.target(arc);
+				this.edgeKey[e] = key(g.weight(arc));
+			}
+		}
+	}
+
+	/**
+	 * @return a long whose signed order is the order of the weights.
+	 */
+	private static long key(double w)
+	{
+		long bits = Double.doubleToLongBits(w);
+		return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+	}
+
+	private static double weightOf(long key)
+	{
+		return Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+	}
+
+	/**
+	 * Finds the forest by taking the edges in order of weight, skipping
+	 * those that would close a cycle.
+	 *
+	 * @return the number of edges in the forest.
+	 */
+	public int kruskal()
+	{
+		this.clear();
+		int[] order = this.sortedEdges();
+
+		int n = this.g.vertexCount();
+		int[] parent = new int[n];
+		int[] size = new int[n];
+		for (int v = 0; v < n; v++)
+		{
+			parent[v] = v;
+			size[v] = 1;
+		}
+
+		int taken = 0;
+		for (int i = 0; i < order.length && taken < n - 1; i++)
+		{
+			int e = order[i];
+			int a = find(parent, this.edgeSource[e]);
+			int b = find(parent, this.edgeTarget[e]);
+			if (a == b)
+				continue;
+
+			if (size[a] < size[b])
+			{
+				int swap = a;
+				a = b;
+				b = swap;
+			}
+			parent[b] = a;
+			size[a] += size[b];
+
+			this.inForest[e] = true;
+			taken++;
+		}
+
+		return this.collect();
+	}
+
+	private static int find(int[] parent, int x)
+	{
+		while (parent[x] != x)
+		{
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+
+		return x;
+	}
+
+	/**
+	 * Sorts the edge ids by weight with a stable radix sort on their keys,
+	 * sixteen bits at a time, leaving ties in id order.
+	 */
+	private int[] sortedEdges()
+	{
+		int m = this.edgeKey.length;
+		int[] ids = new int[m];
+		int[] scratch = new int[m];
+		int[] counts = new int[1 << 16];
+		for (int e = 0; e < m; e++)
+			ids[e] = e;
+
+		for (int shift = 0; shift < 64; shift += 16)
+		{
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < m; i++)
+				counts[this.digit(ids[i], shift)]++;
+
+			int total = 0;
+			for (int d = 0; d < counts.length; d++)
+			{
+				int c = counts[d];
+				counts[d] = total;
+				total += c;
+			}
+
+			for (int i = 0; i < m; i++)
+				scratch[counts[this.digit(ids[i], shift)]++] = ids[i];
+
+			int[] swap = ids;
+			ids = scratch;
+			scratch = swap;
+		}
+
+		return ids;
+	}
+
+	/**
+	 * The sign bit is flipped so the digits sort the keys as unsigned.
+	 */
+	private int digit(int e, int shift)
+	{
+		return (int) (((this.edgeKey[e] ^ Long.MIN_VALUE) >>> shift) & 0xffff);
+	}
+
+	/**
+	 * Finds the forest in rounds: every component picks its lightest edge to
+	 * another component, all picked edges join the forest, and the components
+	 * they join merge. Both the picking and the merging run in parallel.
+	 *
+	 * @return the number of edges in the forest.
+	 */
+	public int boruvka()
+	{
+		this.clear();
+
+		int n = this.g.vertexCount();
+		int m = this.edgeKey.length;
+		ConcurrentUnionFind sets = new ConcurrentUnionFind(n);
+		int[] root = new int[n];
+		AtomicIntegerArray lightest = new AtomicIntegerArray(n);
+
+		while (true)
+		{
+			this.pool.invoke(new Roots(sets, root, lightest, 0, n));
+			this.pool.invoke(new Pick(root, lightest, 0, m));
+
+			int[] merged = { 0 };
+			this.pool.invoke(new Merge(sets, lightest, merged, 0, n));
+			if (merged[0] == 0)
+				break;
+		}
+
+		return this.collect();
+	}
+
+	/**
+	 * @return true if edge {@code a} is lighter than edge {@code b}.
+	 */
+	private boolean lighter(int a, int b)
+	{
+		return this.edgeKey[a] < this.edgeKey[b] || (this.edgeKey[a] == this.edgeKey[b] && a < b);
+	}
+
+	/**
+	 * Records the current root of each vertex and clears its pick.
+	 */
+	@SuppressWarnings("serial")
+	private class Roots extends RecursiveAction
+	{
+		private final ConcurrentUnionFind sets;
+		private final int[] root;
+		private final AtomicIntegerArray lightest;
+		private final int lo;
+		private final int hi;
+
+		Roots(ConcurrentUnionFind sets, int[] root, AtomicIntegerArray lightest, int lo, int hi)
+		{
+			this.sets = sets;
+			this.root = root;
+			this.lightest = lightest;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (this.hi - this.lo > GRAIN)
+			{
+				int mid = (this.lo + this.hi) >>> 1;
+				invokeAll(new Roots(this.sets, this.root, this.lightest, this.lo, mid),
+					new Roots(this.sets, this.root, this.lightest, mid, this.hi));
+				return;
+			}
+
+			for (int v = this.lo; v < this.hi; v++)
+			{
+				this.root[v] = this.sets.find(v);
+				this.lightest.set(v, -1);
+			}
+		}
+	}
+
+	/**
+	 * Offers each edge between two components to both as their lightest.
+	 */
+	@SuppressWarnings("serial")
+	private class Pick extends RecursiveAction
+	{
+		private final int[] root;
+		private final AtomicIntegerArray lightest;
+		private final int lo;
+		private final int hi;
+
+		Pick(int[] root, AtomicIntegerArray lightest, int lo, int hi)
+		{
+			this.root = root;
+			this.lightest = lightest;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (this.hi - this.lo > GRAIN)
+			{
+				int mid = (this.lo + this.hi) >>> 1;
+				invokeAll(new Pick(this.root, this.lightest, this.lo, mid), new Pick(this.root, this.lightest, mid, this.hi));
+				return;
+			}
+
+			for (int e = this.lo; e < this.hi; e++)
+			{
+				if (edgeSource[e] < 0)
+					continue;
+
+				int a = this.root[edgeSource[e]], b = this.root[edgeTarget[e]];
+				if (a == b)
+					continue;
+
+				this.offer(a, e);
+				this.offer(b, e);
+			}
+		}
+
+		private void offer(int component, int e)
+		{
+			while (true)
+			{
+				int current = this.lightest.get(component);
+				if (current >= 0 && !lighter(e, current))
+					return;
+				if (this.lightest.compareAndSet(component, current, e))
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Merges each component with the one its lightest edge reaches, adding
+	 * the edge to the forest if the merge is new.
+	 */
+	@SuppressWarnings("serial")
+	private class Merge extends RecursiveAction
+	{
+		private final ConcurrentUnionFind sets;
+		private final AtomicIntegerArray lightest;
+		private final int[] merged;
+		private final int lo;
+		private final int hi;
+
+		Merge(ConcurrentUnionFind sets, AtomicIntegerArray lightest, int[] merged, int lo, int hi)
+		{
+			this.sets = sets;
+			this.lightest = lightest;
+			this.merged = merged;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (this.hi - this.lo > GRAIN)
+			{
+				int mid = (this.lo + this.hi) >>> 1;
+				invokeAll(new Merge(this.sets, this.lightest, this.merged, this.lo, mid),
+					new Merge(this.sets, this.lightest, this.merged, mid, this.hi));
+				return;
+			}
+
+			boolean any = false;
+			for (int c = this.lo; c < this.hi; c++)
+			{
+				int e = this.lightest.get(c);
+				if (e >= 0 && this.sets.union(edgeSource[e], edgeTarget[e]))
+				{
+					inForest[e] = true;
+					any = true;
+				}
+			}
+
+			// only ever set, so a racing write loses nothing
+			if (any)
+				this.merged[0] = 1;
+		}
+	}
+
+	private void clear()
+	{
+		Arrays.fill(this.inForest, false);
+		this.forest = new int[0];
+		this.weight = 0;
+	}
+
+	/**
+	 * @return the number of edges in the forest, now listed in id order.
+	 */
+	private int collect()
+	{
+		int count = 0;
+		for (int e = 0; e < this.inForest.length; e++)
+			if (this.inForest[e])
+				count++;
+
+		this.forest = new int[count];
+		this.weight = 0;
+		count = 0;
+		for (int e = 0; e < this.inForest.length; e++)
+		{
+			if (this.inForest[e])
+			{
+				this.forest[count++] = e;
+				this.weight += weightOf(this.edgeKey[e]);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * @return the ids of the edges in the forest found last, in order.
+	 */
+	public int[] edgeIds()
+	{
+		return this.forest;
+	}
+
+	public boolean contains(int edgeId)
+	{
+		return this.inForest[edgeId];
+	}
+
+	/**
+	 * @return the total weight of the forest found last.
+	 */
+	public double totalWeight()
+	{
+		return this.weight;
+	}
+
+	/**
+	 * @return a new graph holding every vertex of {@code frozen}, which must
+	 *         be the graph this forest was found in, and the forest's edges.
+	 */
+	public <V, E> Graph<V, E> toGraph(CsrGraph<V, E> frozen)
+	{
+		if (frozen != this.g)
+			throw new IllegalArgumentException("forest was found in another graph.");
+
+		Graph<V, E> forestGraph = new Graph<V, E>(frozen.vertexCount(), this.forest.length, frozen.isDirected());
+		for (int v = 0; v < frozen.vertexCount(); v++)
+			forestGraph.addVertex(new Vertex<V, E>(frozen.vertex(v).getValue()));
+
+		for (int i = 0; i < this.forest.length; i++)
+		{
+			int e = this.forest[i];
+			forestGraph.addEdge(frozen.edge(e).getSourceVertex(), frozen.edge(e).getTargetVertex(), frozen.edge(e).getWeight());
+		}
+
+		return forestGraph;
+	}
+}
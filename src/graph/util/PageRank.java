@@ -0,0 +1,400 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.CsrGraph;
+import graph.IntGraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * PageRank of the vertex ids of an {@link IntGraph}, such as a
+ * {@link graph.Graph#freeze() frozen} {@link graph.Graph}, by power iteration
+ * over ranges of vertices on a {@link ForkJoinPool}.
+ * <p>
+ * Each iteration spreads every vertex's rank over the arcs leaving it, in
+ * proportion to their weights if {@link #setWeighted(boolean) weighted},
+ * then gathers each vertex's new rank over the arcs entering it from
+ * {@link IntGraph#transpose()}. Rank left on vertices without arcs, and the
+ * share lost to damping, return to the vertices in proportion to the
+ * personalization vector, uniform unless {@link #setPersonalization set}.
+ * Iteration stops once the ranks change by less than the tolerance in total.
+ * <p>
+ * A run starts from the ranks of the last run, so rerunning after changing
+ * settings converges quickly; {@link #carryOver} maps ranks onto a newer
+ * freeze of the same graph for the same purpose.
+ */
+public class PageRank
+{
+	/**
+	 * The number of vertices below which a task stops splitting.
+	 */
+	private static final int GRAIN = 4096;
+
+	private final IntGraph g;
+	private final IntGraph reverse;
+	private final ForkJoinPool pool;
+
+	private double damping = 0.85;
+	private double tolerance = 1e-9;
+	private int maxIterations = 100;
+	private boolean weighted = false;
+	private double[] personalization = null;
+
+	private double[] rank;
+	private double[] next;
+	private final double[] share;
+	private final double[] outWeight;
+	private int iterations = 0;
+
+	public PageRank(IntGraph g)
+	{
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	public PageRank(IntGraph g, ForkJoinPool pool)
+	{
+		this.g = g;
+		this.reverse = g.transpose();
+		this.pool = pool;
+
+		int n = g.vertexCount();
+		this.rank = new double[n];
+		this.next = new double[n];
+		this.share = new double[n];
+		this.outWeight = new double[n];
+		Arrays.fill(this.rank, 1.0 / n);
+	}
+
+	public void setDamping(double damping)
+	{
+		if (damping < 0 || damping > 1)
+			throw new IllegalArgumentException("damping must be between 0 and 1.");
+
+		this.damping = damping;
+	}
+
+	/**
+	 * Sets the total change in rank below which iteration stops.
+	 */
+	public void setTolerance(double tolerance)
+	{
+		this.tolerance = tolerance;
+	}
+
+	public void setMaxIterations(int maxIterations)
+	{
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Spreads rank over arcs in proportion to their weights, which must not
+	 * be negative, rather than evenly.
+	 */
+	public void setWeighted(boolean weighted)
+	{
+		this.weighted = weighted;
+	}
+
+	/**
+	 * Returns teleported rank to the vertices in proportion to
+	 * {@code weights}, indexed by id, or evenly if it is null.
+	 */
+	public void setPersonalization(double[] weights)
+	{
+		if (weights == null)
+		{
+			this.personalization = null;
+			return;
+		}
+
+		if (weights.length != this.g.vertexCount())
+			throw new IllegalArgumentException("one weight per vertex is needed.");
+
+		double total = 0;
+		for (int v = 0; v < weights.length; v++)
+		{
+			if (weights[v] < 0)
+				throw new IllegalArgumentException("weights must not be negative.");
+			total += weights[v];
+		}
+		if (!(total > 0))
+			throw new IllegalArgumentException("weights must not all be zero.");
+
+		this.personalization = new double[weights.length];
+		for (int v = 0; v < weights.length; v++)
+			this.personalization[v] = weights[v] / total;
+	}
+
+	/**
+	 * Returns teleported rank to {@code seeds} alone, evenly.
+	 */
+	public void setSeeds(int... seeds)
+	{
+		double[] weights = new double[this.g.vertexCount()];
+		for (int i = 0; i < seeds.length; i++)
+			weights[seeds[i]] = 1;
+
+		this.setPersonalization(weights);
+	}
+
+	/**
+	 * Starts the next run from {@code ranks}, indexed by id, instead of the
+	 * last run's.
+	 */
+	public void setInitialRanks(double[] ranks)
+	{
+		if (ranks.length != this.g.vertexCount())
+			throw new IllegalArgumentException("one rank per vertex is needed.");
+
+		System.arraycopy(ranks, 0, this.rank, 0, ranks.length);
+	}
+
+	/**
+	 * @return {@code ranks} of the vertices of {@code from} moved to their
+	 *         ids in {@code to}, with vertices new to {@code to} given the
+	 *         average rank, scaled to add up to {@code 1}.
+	 */
+	public static <V, E> double[] carryOver(CsrGraph<V, E> from, double[] ranks, CsrGraph<V, E> to)
+	{
+		int n = to.vertexCount();
+		double[] moved = new double[n];
+		double total = 0;
+		for (int v = 0; v < n; v++)
+		{
+			int old = from.idOf(to.vertex(v));
+			moved[v] = (old < 0) ? 1.0 / n : ranks[old];
+			total += moved[v];
+		}
+
+		for (int v = 0; v < n; v++)
+			moved[v] /= total;
+
+		return moved;
+	}
+
+	/**
+	 * @return the number of iterations taken.
+	 */
+	public int run()
+	{
+		int n = this.g.vertexCount();
+		if (n == 0)
+			return 0;
+
+		this.pool.invoke(new OutWeights(0, n));
+
+		this.iterations = 0;
+		while (this.iterations < this.maxIterations)
+		{
+			double dangling = this.pool.invoke(new Spread(0, n));
+			double change = this.pool.invoke(new Gather(0, n, dangling));
+			this.iterations++;
+
+			double[] swap = this.rank;
+			this.rank = this.next;
+			this.next = swap;
+
+			if (change < this.tolerance)
+				break;
+		}
+
+		return this.iterations;
+	}
+
+	private double teleport(int v)
+	{
+		return (this.personalization == null) ? 1.0 / this.g.vertexCount() : this.personalization[v];
+	}
+
+	/**
+	 * Sums a value over a range of vertices, splitting it across the pool.
+	 */
+	@SuppressWarnings("serial")
+	private abstract class RangeTask extends RecursiveTask<Double>
+	{
+		final int lo;
+		final int hi;
+
+		RangeTask(int lo, int hi)
+		{
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		abstract RangeTask part(int lo, int hi);
+
+		abstract double leaf();
+
+		protected Double compute()
+		{
+			if (this.hi - this.lo <= GRAIN)
+				return this.leaf();
+
+			int mid = (this.lo + this.hi) >>> 1;
+			RangeTask right = this.part(mid, this.hi);
+			right.fork();
+			double left = this.part(this.lo, mid).compute();
+			return left + right.join();
+		}
+	}
+
+	/**
+	 * Totals the weight of the arcs leaving each vertex.
+	 */
+	@SuppressWarnings("serial")
+	private class OutWeights extends RangeTask
+	{
+		OutWeights(int lo, int hi)
+		{
+			super(lo, hi);
+		}
+
+		RangeTask part(int lo, int hi)
+		{
+			return new OutWeights(lo, hi);
+		}
+
+		double leaf()
+		{
+			for (int u = this.lo; u < this.hi; u++)
+			{
+				if (!weighted)
+				{
+					outWeight[u] = g.degree(u);
+					continue;
+				}
+
+				double total = 0;
+				for (int arc = g.firstArc(u); arc < g.lastArc(u); arc++)
+				{
+					double w = g.weight(arc);
+					if (w < 0)
+						throw new IllegalArgumentException("negative weight on edge " + g.edgeId(arc) + ".");
+					total += w;
+				}
+				outWeight[u] = total;
+			}
+
+			return 0;
+		}
+	}
+
+	/**
+	 * Divides each vertex's rank by the weight of its arcs.
+	 *
+	 * @return the rank of the vertices without arcs to spread it over.
+	 */
+	@SuppressWarnings("serial")
+	private class Spread extends RangeTask
+	{
+		Spread(int lo, int hi)
+		{
+			super(lo, hi);
+		}
+
+		RangeTask part(int lo, int hi)
+		{
+			return new Spread(lo, hi);
+		}
+
+		double leaf()
+		{
+			double dangling = 0;
+			for (int u = this.lo; u < this.hi; u++)
+			{
+				if (outWeight[u] > 0)
+					share[u] = rank[u] / outWeight[u];
+				else
+				{
+					share[u] = 0;
+					dangling += rank[u];
+				}
+			}
+
+			return dangling;
+		}
+	}
+
+	/**
+	 * Computes each vertex's new rank from the shares of the vertices with
+	 * arcs to it.
+	 *
+	 * @return the total change in rank.
+	 */
+	@SuppressWarnings("serial")
+	private class Gather extends RangeTask
+	{
+		private final double dangling;
+
+		Gather(int lo, int hi, double dangling)
+		{
+			super(lo, hi);
+			this.dangling = dangling;
+		}
+
+		RangeTask part(int lo, int hi)
+		{
+			return new Gather(lo, hi, this.dangling);
+		}
+
+		double leaf()
+		{
+			IntGraph in = reverse;
+			double d = damping;
+			double change = 0;
+
+			for (int v = this.lo; v < this.hi; v++)
+			{
+				double sum = 0;
+				int end = in.lastArc(v);
+				for (int arc = in.firstArc(v); arc < end; arc++)
+					sum += weighted ? share[in.target(arc)] * in.weight(arc) : share[in.target(arc)];
+
+				double p = teleport(v);
+				next[v] = (1 - d) * p + d * (sum + this.dangling * p);
+				change += Math.abs(next[v] - rank[v]);
+			}
+
+			return change;
+		}
+	}
+
+	/**
+	 * @return the number of iterations of the last run.
+	 */
+	public int iterations()
+	{
+		return this.iterations;
+	}
+
+	/**
+	 * @return the rank of {@code v}.
+	 */
+	public double rank(int v)
+	{
+		return this.rank[v];
+	}
+
+	/**
+	 * @return the rank of every vertex, indexed by id. The array is replaced
+	 *         by each run.
+	 */
+	public double[] ranks()
+	{
+		return this.rank;
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Level-synchronous breadth-first search over the vertex ids of an
+ * {@link IntGraph}, expanding each frontier across a {@link ForkJoinPool}.
+ * A {@link graph.Graph} is searched through its {@link graph.Graph#freeze()
+ * frozen} snapshot, using {@link graph.CsrGraph#idOf} for the source.
+ * <p>
+ * Vertices are claimed by setting their bit in a shared visited bitset with
+ * a compare-and-set, so each is discovered exactly once. Each task collects
+ * the vertices it discovers in its own buffer and copies it into the next
+ * frontier at an offset reserved with a single atomic add.
+ */
+public class ParallelBreadthFirstSearch
+{
+	/**
+	 * The number of frontier vertices below which a task stops splitting.
+	 */
+	private static final int GRAIN = 256;
+
+	private final IntGraph g;
+	private final ForkJoinPool pool;
+
+	private final int[] level;
+	private final int[] parent;
+	private final AtomicLongArray visited;
+
+	private int[] frontier;
+	private int[] next;
+	private final AtomicInteger tail = new AtomicInteger();
+
+	private int levels = 0;
+	private long[] levelNanos = new long[0];
+	private int[] levelSizes = new int[0];
+
+	public ParallelBreadthFirstSearch(IntGraph g)
+	{
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	public ParallelBreadthFirstSearch(IntGraph g, ForkJoinPool pool)
+	{
+		this.g = g;
+		this.pool = pool;
+
+		int n = g.vertexCount();
+		this.level = new int[n];
+		this.parent = new int[n];
+		this.visited = new AtomicLongArray((n + 63) >>> 6);
+		this.frontier = new int[n];
+		this.next = new int[n];
+	}
+
+	/**
+	 * Searches from {@code source}, forgetting any earlier run.
+	 *
+	 * @return the number of levels, counting the source's.
+	 */
+	public int run(int source)
+	{
+		int n = this.g.vertexCount();
+		Arrays.fill(this.level, -1);
+		Arrays.fill(this.parent, -1);
+		for (int i = 0; i < this.visited.length(); i++)
+			this.visited.set(i, 0);
+
+		this.levels = 0;
+		this.level[source] = 0;
+		this.parent[source] = source;
+		this.visited.set(source >>> 6, 1L << source);
+		this.frontier[0] = source;
+
+		int size = 1;
+		while (size > 0)
+		{
+			long begin = System.nanoTime();
+			this.tail.set(0);
+			this.pool.invoke(new Expand(this.levels + 1, 0, size));
+
+			this.record(size, System.nanoTime() - begin);
+
+			int[] swap = this.frontier;
+			this.frontier = this.next;
+			this.next = swap;
+			size = this.tail.get();
+		}
+
+		return this.levels;
+	}
+
+	private void record(int size, long nanos)
+	{
+		if (this.levels == this.levelSizes.length)
+		{
+			int grown = Math.max(16, this.levels * 2);
+			this.levelSizes = Arrays.copyOf(this.levelSizes, grown);
+			this.levelNanos = Arrays.copyOf(this.levelNanos, grown);
+		}
+
+		this.levelSizes[this.levels] = size;
+		this.levelNanos[this.levels] = nanos;
+		this.levels++;
+	}
+
+	/**
+	 * @return true if this call set {@code v}'s visited bit.
+	 */
+	private boolean claim(int v)
+	{
+		int word = v >>> 6;
+		long bit = 1L << v;
+		while (true)
+		{
+			long bits = this.visited.get(word);
+			if ((bits & bit) != 0)
+				return false;
+			if (this.visited.compareAndSet(word, bits, bits | bit))
+				return true;
+		}
+	}
+
+	/**
+	 * Expands {@code frontier[lo..hi)} into the next frontier.
+	 */
+	@SuppressWarnings("serial")
+	private class Expand extends RecursiveAction
+	{
+		private final int depth;
+		private final int lo;
+		private final int hi;
+
+		Expand(int depth, int lo, int hi)
+		{
+			this.depth = depth;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (this.hi - this.lo > GRAIN)
+			{
+				int mid = (this.lo + this.hi) >>> 1;
+				invokeAll(new Expand(this.depth, this.lo, mid), new Expand(this.depth, mid, this.hi));
+				return;
+			}
+
+			IntGraph graph = ParallelBreadthFirstSearch.this.g;
+			int[] frontier = ParallelBreadthFirstSearch.this.frontier;
+			int[] found = new int[GRAIN];
+			int count = 0;
+
+			for (int i = this.lo; i < this.hi; i++)
+			{
+				int u = frontier[i];
+				int end = graph.lastArc(u);
+				for (int arc = graph.firstArc(u); arc < end; arc++)
+				{
+					int v = graph.target(arc);
+					if (!claim(v))
+						continue;
+
+					level[v] = this.depth;
+					parent[v] = u;
+					if (count == found.length)
+					{
+						this.flush(found, count);
+						count = 0;
+					}
+					found[count++] = v;
+				}
+			}
+
+			this.flush(found, count);
+		}
+
+		private void flush(int[] found, int count)
+		{
+			if (count == 0)
+				return;
+
+			int at = tail.getAndAdd(count);
+			System.arraycopy(found, 0, next, at, count);
+		}
+	}
+
+	/**
+	 * @return the level of {@code v}, its distance in arcs from the source,
+	 *         or {@code -1} if it was not reached.
+	 */
+	public int level(int v)
+	{
+		return this.level[v];
+	}
+
+	/**
+	 * @return the vertex that discovered {@code v}, {@code v} itself for the
+	 *         source, or {@code -1} if it was not reached.
+	 */
+	public int parent(int v)
+	{
+		return this.parent[v];
+	}
+
+	/**
+	 * @return the number of levels of the last run.
+	 */
+	public int levelCount()
+	{
+		return this.levels;
+	}
+
+	/**
+	 * @return the number of vertices on level {@code i} of the last run.
+	 */
+	public int levelSize(int i)
+	{
+		if (i >= this.levels)
+			throw new IndexOutOfBoundsException("level " + i + " of " + this.levels);
+
+		return this.levelSizes[i];
+	}
+
+	/**
+	 * @return the nanoseconds spent expanding level {@code i} of the last
+	 *         run into level {@code i + 1}.
+	 */
+	public long levelTime(int i)
+	{
+		if (i >= this.levels)
+			throw new IndexOutOfBoundsException("level " + i + " of " + this.levels);
+
+		return this.levelNanos[i];
+	}
+}
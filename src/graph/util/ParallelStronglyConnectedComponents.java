@@ -0,0 +1,325 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The strongly connected components of an {@link IntGraph}, found by the
+ * forward-backward algorithm (Fleischer, Hendrickson and Pinar) on a
+ * {@link ForkJoinPool}.
+ * <p>
+ * Vertices with no arcs entering or leaving them are first trimmed away as
+ * components of their own, repeatedly. Each remaining partition then picks a
+ * random pivot: the vertices both reachable from it and reaching it, within the
+ * partition, are its component, and the vertices reached only forwards, only
+ * backwards or neither form three partitions that hold no component in
+ * common, and are searched in parallel.
+ * <p>
+ * This pays off on graphs with a few large components; many small components
+ * that survive trimming are found one at a time, and
+ * {@link StronglyConnectedComponents} may be faster. Components are numbered
+ * the same way as there.
+ */
+public class ParallelStronglyConnectedComponents
+{
+	private final IntGraph g;
+	private final IntGraph reverse;
+	private final ForkJoinPool pool;
+
+	private final int[] component;
+	private int[] sizes = new int[0];
+	private int count = 0;
+
+	// every partition has its own colour, which also marks what it reached
+	private final int[] colour;
+	private final int[] forward;
+	private final int[] backward;
+	private final AtomicInteger nextColour = new AtomicInteger();
+	private final AtomicInteger nextComponent = new AtomicInteger();
+
+	public ParallelStronglyConnectedComponents(IntGraph g)
+	{
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	public ParallelStronglyConnectedComponents(IntGraph g, ForkJoinPool pool)
+	{
+		this.g = g;
+		this.reverse = g.transpose();
+		this.pool = pool;
+
+		int n = g.vertexCount();
+		this.component = new int[n];
+		this.colour = new int[n];
+		this.forward = new int[n];
+		this.backward = new int[n];
+	}
+
+	/**
+	 * @return the number of components.
+	 */
+	public int run()
+	{
+		int n = this.g.vertexCount();
+		Arrays.fill(this.forward, -1);
+		Arrays.fill(this.backward, -1);
+		this.nextComponent.set(0);
+		this.nextColour.set(1);
+
+		int[] remaining = this.trim();
+		this.pool.invoke(new Split(remaining, remaining.length, 0));
+
+		this.count = this.nextComponent.get();
+		this.sizes = StronglyConnectedComponents.renumber(this.component, n, this.count);
+		return this.count;
+	}
+
+	/**
+	 * Gives each vertex with no arcs entering or leaving it from the other
+	 * untrimmed vertices a component of its own, until none is left, and
+	 * colours the rest {@code 0}.
+	 *
+	 * @return the untrimmed vertices.
+	 */
+	private int[] trim()
+	{
+		int n = this.g.vertexCount();
+		int[] in = new int[n];
+		int[] out = new int[n];
+		int[] queue = new int[n];
+		int tail = 0;
+
+		for (int v = 0; v < n; v++)
+		{
+			out[v] = this.g.degree(v);
+			in[v] = this.reverse.degree(v);
+			this.colour[v] = 0;
+			if (in[v] == 0 || out[v] == 0)
+			{
+				this.colour[v] = -1;
+				queue[tail++] = v;
+			}
+		}
+
+		for (int head = 0; head < tail; head++)
+		{
+			int v = queue[head];
+			this.component[v] = this.nextComponent.getAndIncrement();
+
+			for (int arc = this.g.firstArc(v); arc < this.g.lastArc(v); arc++)
+			{
+				int w = this.g.target(arc);
+				if (this.colour[w] == 0 && --in[w] == 0)
+				{
+					this.colour[w] = -1;
+					queue[tail++] = w;
+				}
+			}
+			for (int arc = this.reverse.firstArc(v); arc < this.reverse.lastArc(v); arc++)
+			{
+				int w = this.reverse.target(arc);
+				if (this.colour[w] == 0 && --out[w] == 0)
+				{
+					this.colour[w] = -1;
+					queue[tail++] = w;
+				}
+			}
+		}
+
+		int[] remaining = new int[n - tail];
+		int size = 0;
+		for (int v = 0; v < n; v++)
+			if (this.colour[v] == 0)
+				remaining[size++] = v;
+
+		return remaining;
+	}
+
+	/**
+	 * Finds the components within the partition {@code members[0..size)},
+	 * all coloured {@code colour}.
+	 */
+	@SuppressWarnings("serial")
+	private class Split extends RecursiveAction
+	{
+		private int[] members;
+		private int size;
+		private int colour;
+
+		Split(int[] members, int size, int colour)
+		{
+			this.members = members;
+			this.size = size;
+			this.colour = colour;
+		}
+
+		protected void compute()
+		{
+			ArrayList<Split> forked = new ArrayList<Split>();
+			int[] queue = new int[this.size];
+
+			// carry on with the largest part here, so a long run of small
+			// components cannot nest tasks deeply
+			while (this.size > 0)
+			{
+				int[] members = this.members;
+				int size = this.size;
+				int c = this.colour;
+
+				// a random pivot keeps a chain of components from being peeled
+				// off one end at a time
+				int pivot = members[ThreadLocalRandom.current().nextInt(size)];
+				reach(g, pivot, c, forward, queue);
+				reach(reverse, pivot, c, backward, queue);
+
+				int[] partSizes = new int[3];
+				int found = nextComponent.getAndIncrement();
+				for (int i = 0; i < size; i++)
+				{
+					int v = members[i];
+					boolean f = forward[v] == c, b = backward[v] == c;
+					if (f && b)
+						component[v] = found;
+					else
+						partSizes[f ? 0 : (b ? 1 : 2)]++;
+				}
+
+				int largest = 0;
+				for (int part = 1; part < 3; part++)
+					if (partSizes[part] > partSizes[largest])
+						largest = part;
+
+				// the largest part is packed into the front of members, which no
+				// other part still needs
+				int[][] parts = new int[3][];
+				for (int part = 0; part < 3; part++)
+					parts[part] = (part == largest) ? members : new int[partSizes[part]];
+
+				int[] filled = new int[3];
+				for (int i = 0; i < size; i++)
+				{
+					int v = members[i];
+					boolean f = forward[v] == c, b = backward[v] == c;
+					if (!f || !b)
+					{
+						int part = f ? 0 : (b ? 1 : 2);
+						parts[part][filled[part]++] = v;
+					}
+				}
+
+				this.size = 0;
+				for (int part = 0; part < 3; part++)
+				{
+					if (partSizes[part] == 0)
+						continue;
+
+					int newColour = nextColour.getAndIncrement();
+					for (int i = 0; i < partSizes[part]; i++)
+						ParallelStronglyConnectedComponents.this.colour[parts[part][i]] = newColour;
+
+					if (part == largest)
+					{
+						this.members = parts[part];
+						this.size = partSizes[part];
+						this.colour = newColour;
+					}
+					else
+					{
+						Split task = new Split(parts[part], partSizes[part], newColour);
+						task.fork();
+						forked.add(task);
+					}
+				}
+			}
+
+			for (int i = 0; i < forked.size(); i++)
+				forked.get(i).join();
+		}
+	}
+
+	/**
+	 * Marks every vertex coloured {@code c} that can be reached from
+	 * {@code root} through vertices coloured {@code c} with {@code c} in
+	 * {@code mark}.
+	 */
+	private void reach(IntGraph graph, int root, int c, int[] mark, int[] queue)
+	{
+		int tail = 0;
+		mark[root] = c;
+		queue[tail++] = root;
+
+		for (int head = 0; head < tail; head++)
+		{
+			int u = queue[head];
+			int end = graph.lastArc(u);
+			for (int arc = graph.firstArc(u); arc < end; arc++)
+			{
+				int v = graph.target(arc);
+				if (this.colour[v] == c && mark[v] != c)
+				{
+					mark[v] = c;
+					queue[tail++] = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of components found by the last run.
+	 */
+	public int componentCount()
+	{
+		return this.count;
+	}
+
+	/**
+	 * @return the component of {@code v}.
+	 */
+	public int component(int v)
+	{
+		return this.component[v];
+	}
+
+	/**
+	 * @return the component of every vertex, indexed by id.
+	 */
+	public int[] components()
+	{
+		return this.component;
+	}
+
+	/**
+	 * @return the number of vertices in component {@code c}.
+	 */
+	public int componentSize(int c)
+	{
+		return this.sizes[c];
+	}
+
+	/**
+	 * @return the acyclic graph of the components found by the last run.
+	 */
+	public Condensation condensation()
+	{
+		return new Condensation(this.g, this.component, this.count);
+	}
+}
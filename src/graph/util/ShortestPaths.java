@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+/**
+ * The shortest paths from one source vertex id to every other, as found by
+ * {@link Dijkstra} or {@link DeltaStepping}.
+ */
+public interface ShortestPaths
+{
+	/**
+	 * @return the distance to {@code v}, or {@link Double#POSITIVE_INFINITY}
+	 *         if it was not reached.
+	 */
+	public double distance(int v);
+
+	/**
+	 * @return the vertex before {@code v} on its shortest path, or {@code -1}
+	 *         for the source and unreached vertices.
+	 */
+	public int predecessor(int v);
+
+	/**
+	 * @return the vertices on the shortest path from the source to
+	 *         {@code target}, both included, or null if it was not reached.
+	 */
+	public int[] path(int target);
+}
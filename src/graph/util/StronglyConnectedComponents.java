@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * The strongly connected components of an {@link IntGraph}, found by
+ * Kosaraju's algorithm on two runs of {@link IntDepthFirstSearch}: one over
+ * the graph, then one over its {@link IntGraph#transpose() transpose} from
+ * each vertex in order of decreasing finish time. Each search of the second
+ * run discovers exactly one component, in one run of consecutive times.
+ * <p>
+ * Components are numbered densely from {@code 0}, in order of their lowest
+ * vertex id. See {@link ParallelStronglyConnectedComponents} for very large
+ * graphs.
+ */
+public class StronglyConnectedComponents
+{
+	private final IntGraph g;
+
+	private final int[] component;
+	private int[] sizes = new int[0];
+	private int count = 0;
+
+	public StronglyConnectedComponents(IntGraph g)
+	{
+		this.g = g;
+		this.component = new int[g.vertexCount()];
+	}
+
+	/**
+	 * @return the number of components.
+	 */
+	public int run()
+	{
+		int n = this.g.vertexCount();
+		IntDepthFirstSearch dfs = new IntDepthFirstSearch(this.g);
+		int last = dfs.run();
+
+		int[] byFinish = new int[last + 1];
+		Arrays.fill(byFinish, -1);
+		for (int v = 0; v < n; v++)
+			byFinish[dfs.finishTime(v)] = v;
+
+		dfs.reset(this.g.transpose());
+		int[] owner = new int[last + 1];
+		int found = 0;
+		for (int t = last; t >= 0; t--)
+		{
+			int root = byFinish[t];
+			if (root < 0 || dfs.startTime(root) != -1)
+				continue;
+
+			int from = dfs.time() + 1;
+			int to = dfs.visit(root);
+			Arrays.fill(owner, from, to + 1, found++);
+		}
+
+		for (int v = 0; v < n; v++)
+			this.component[v] = owner[dfs.startTime(v)];
+
+		this.count = found;
+		this.sizes = renumber(this.component, n, found);
+		return found;
+	}
+
+	/**
+	 * Renumbers the {@code count} components in {@code component[0..n)} in
+	 * order of their lowest vertex id.
+	 *
+	 * @return the size of each component.
+	 */
+	static int[] renumber(int[] component, int n, int count)
+	{
+		int[] order = new int[count];
+		Arrays.fill(order, -1);
+		int[] sizes = new int[count];
+
+		int next = 0;
+		for (int v = 0; v < n; v++)
+		{
+			int c = component[v];
+			if (order[c] == -1)
+				order[c] = next++;
+			component[v] = order[c];
+			sizes[order[c]]++;
+		}
+
+		return sizes;
+	}
+
+	/**
+	 * @return the number of components found by the last run.
+	 */
+	public int componentCount()
+	{
+		return this.count;
+	}
+
+	/**
+	 * @return the component of {@code v}.
+	 */
+	public int component(int v)
+	{
+		return this.component[v];
+	}
+
+	/**
+	 * @return the component of every vertex, indexed by id.
+	 */
+	public int[] components()
+	{
+		return this.component;
+	}
+
+	/**
+	 * @return the number of vertices in component {@code c}.
+	 */
+	public int componentSize(int c)
+	{
+		return this.sizes[c];
+	}
+
+	/**
+	 * @return the acyclic graph of the components found by the last run.
+	 */
+	public Condensation condensation()
+	{
+		return new Condensation(this.g, this.component, this.count);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+
+/**
+ * A topological order of the vertex ids of a directed {@link IntGraph}:
+ * vertices in order of decreasing finish time of an
+ * {@link IntDepthFirstSearch}, so every arc leads from an earlier vertex to
+ * a later one. An arc to a vertex that finished no earlier than its source
+ * closes a cycle, and then there is no order.
+ */
+public class TopologicalSort
+{
+	private final IntGraph g;
+
+	private final int[] order;
+	private final int[] position;
+	private boolean acyclic = false;
+
+	public TopologicalSort(IntGraph g)
+	{
+		this.g = g;
+		this.order = new int[g.vertexCount()];
+		this.position = new int[g.vertexCount()];
+	}
+
+	/**
+	 * @return true if the graph has no cycle, and so has an order.
+	 */
+	public boolean run()
+	{
+		IntGraph graph = this.g;
+		int n = graph.vertexCount();
+		IntDepthFirstSearch dfs = new IntDepthFirstSearch(graph);
+		int last = dfs.run();
+
+		int[] byFinish = new int[last + 1];
+		Arrays.fill(byFinish, -1);
+		for (int v = 0; v < n; v++)
+			byFinish[dfs.finishTime(v)] = v;
+
+		int next = 0;
+		for (int t = last; t >= 0; t--)
+		{
+			if (byFinish[t] >= 0)
+			{
+				this.position[byFinish[t]] = next;
+				this.order[next++] = byFinish[t];
+			}
+		}
+
+		this.acyclic = true;
+		for (int u = 0; u < n && this.acyclic; u++)
+			for (int arc = graph.firstArc(u); arc < graph.lastArc(u); arc++)
+				if (this.position[graph.target(arc)] <= this.position[u])
+					this.acyclic = false;
+
+		return this.acyclic;
+	}
+
+	/**
+	 * @return true if the last run found no cycle.
+	 */
+	public boolean isAcyclic()
+	{
+		return this.acyclic;
+	}
+
+	/**
+	 * @return the vertices in topological order.
+	 * @throws IllegalStateException if the last run found a cycle.
+	 */
+	public int[] order()
+	{
+		if (!this.acyclic)
+			throw new IllegalStateException("graph has a cycle.");
+
+		return this.order;
+	}
+
+	/**
+	 * @return the index of {@code v} in {@link #order()}.
+	 * @throws IllegalStateException if the last run found a cycle.
+	 */
+	public int position(int v)
+	{
+		if (!this.acyclic)
+			throw new IllegalStateException("graph has a cycle.");
+
+		return this.position[v];
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package graph.util;
+
+import graph.IntGraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Exact triangle counts and clustering coefficients of an {@link IntGraph},
+ * computed in parallel on a {@link ForkJoinPool}. Arc directions, parallel
+ * edges and self loops are ignored: two vertices are neighbours if any arc
+ * joins them.
+ * <p>
+ * The neighbours of each vertex are first gathered into a sorted compact
+ * adjacency. Each edge is then kept only at its end of lower degree (ties
+ * broken by id), which leaves every vertex with at most about
+ * {@code sqrt(2m)} kept neighbours. Every triangle is found exactly once,
+ * from its lowest vertex, by merging the kept neighbours of the ends of one
+ * of its edges.
+ */
+public class TriangleCount
+{
+	/**
+	 * The number of vertices below which a task stops splitting.
+	 */
+	private static final int GRAIN = 1024;
+
+	private static final int DEGREES = 0, FILL = 1, ORIENT_COUNT = 2, ORIENT_FILL = 3, COUNT = 4;
+
+	private final IntGraph g;
+	private final ForkJoinPool pool;
+
+	private int[] degree;
+	private int[] offsets;
+	private int[] neighbours;
+	private int[] higherOffsets;
+	private int[] higher;
+	private AtomicLongArray triangles;
+	private long total = 0;
+
+	public TriangleCount(IntGraph g)
+	{
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	public TriangleCount(IntGraph g, ForkJoinPool pool)
+	{
+		this.g = g;
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the number of triangles in the graph.
+	 */
+	public long run()
+	{
+		int n = this.g.vertexCount();
+		this.degree = new int[n];
+		this.offsets = new int[n + 1];
+		this.higherOffsets = new int[n + 1];
+		this.triangles = new AtomicLongArray(n);
+
+		this.pool.invoke(new Pass(DEGREES, 0, n));
+		for (int v = 0; v < n; v++)
+			this.offsets[v + 1] = this.offsets[v] + this.degree[v];
+		this.neighbours = new int[this.offsets[n]];
+		this.pool.invoke(new Pass(FILL, 0, n));
+
+		this.pool.invoke(new Pass(ORIENT_COUNT, 0, n));
+		for (int v = 0; v < n; v++)
+			this.higherOffsets[v + 1] += this.higherOffsets[v];
+		this.higher = new int[this.higherOffsets[n]];
+		this.pool.invoke(new Pass(ORIENT_FILL, 0, n));
+
+		this.pool.invoke(new Pass(COUNT, 0, n));
+
+		long sum = 0;
+		for (int v = 0; v < n; v++)
+			sum += this.triangles.get(v);
+		this.total = sum / 3;
+
+		// only the kept edges are needed from here
+		this.neighbours = null;
+		this.higher = null;
+		return this.total;
+	}
+
+	/**
+	 * @return true if the edge between {@code u} and {@code v} is kept at
+	 *         {@code u}.
+	 */
+	private boolean ranksBelow(int u, int v)
+	{
+		return this.degree[u] < this.degree[v] || (this.degree[u] == this.degree[v] && u < v);
+	}
+
+	/**
+	 * One step of {@link #run()} over the vertices {@code [lo, hi)}.
+	 */
+	@SuppressWarnings("serial")
+	private class Pass extends RecursiveAction
+	{
+		private final int step;
+		private final int lo;
+		private final int hi;
+		private int[] scratch = new int[16];
+
+		Pass(int step, int lo, int hi)
+		{
+			this.step = step;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (this.hi - this.lo > GRAIN)
+			{
+				int mid = (this.lo + this.hi) >>> 1;
+				invokeAll(new Pass(this.step, this.lo, mid), new Pass(this.step, mid, this.hi));
+				return;
+			}
+
+			for (int u = this.lo; u < this.hi; u++)
+			{
+				switch (this.step)
+				{
+				case DEGREES:
+					degree[u] = this.gather(u);
+					break;
+				case FILL:
+					int size = this.gather(u);
+					System.arraycopy(this.scratch, 0, neighbours, offsets[u], size);
+					break;
+				case ORIENT_COUNT:
+					for (int i = offsets[u]; i < offsets[u + 1]; i++)
+						if (ranksBelow(u, neighbours[i]))
+							higherOffsets[u + 1]++;
+					break;
+				case ORIENT_FILL:
+					int at = higherOffsets[u];
+					for (int i = offsets[u]; i < offsets[u + 1]; i++)
+						if (ranksBelow(u, neighbours[i]))
+							higher[at++] = neighbours[i];
+					break;
+				default:
+					this.count(u);
+				}
+			}
+		}
+
+		/**
+		 * Puts the distinct neighbours of {@code u} in the scratch buffer, in
+		 * order.
+		 *
+		 * @return how many there are.
+		 */
+		private int gather(int u)
+		{
+			int size = this.append(g, u, 0);
+			if (g.isDirected())
+				size = this.append(g.transpose(), u, size);
+
+			Arrays.sort(this.scratch, 0, size);
+			int distinct = 0;
+			for (int i = 0; i < size; i++)
+				if (this.scratch[i] != u && (distinct == 0 || this.scratch[distinct - 1] != this.scratch[i]))
+					this.scratch[distinct++] = this.scratch[i];
+
+			return distinct;
+		}
+
+		private int append(IntGraph graph, int u, int size)
+		{
+			int degree = graph.degree(u);
+			if (this.scratch.length < size + degree)
+				this.scratch = Arrays.copyOf(this.scratch, Math.max(size + degree, this.scratch.length * 2));
+
+			for (int arc = graph.firstArc(u); arc < graph.lastArc(u); arc++)
+				this.scratch[size++] = graph.target(arc);
+
+			return size;
+		}
+
+		/**
+		 * Counts the triangles whose lowest vertex is {@code u} against each
+		 * of their vertices.
+		 */
+		private void count(int u)
+		{
+			int found = 0;
+			int uEnd = higherOffsets[u + 1];
+			for (int i = higherOffsets[u]; i < uEnd; i++)
+			{
+				int v = higher[i];
+				int a = higherOffsets[u], b = higherOffsets[v], bEnd = higherOffsets[v + 1];
+				int shared = 0;
+				while (a < uEnd && b < bEnd)
+				{
+					int x = higher[a], y = higher[b];
+					if (x < y)
+						a++;
+					else if (x > y)
+						b++;
+					else
+					{
+						triangles.getAndIncrement(x);
+						shared++;
+						a++;
+						b++;
+					}
+				}
+
+				if (shared > 0)
+					triangles.getAndAdd(v, shared);
+				found += shared;
+			}
+
+			if (found > 0)
+				triangles.getAndAdd(u, found);
+		}
+	}
+
+	/**
+	 * @return the number of triangles found by the last run.
+	 */
+	public long triangleCount()
+	{
+		return this.total;
+	}
+
+	/**
+	 * @return the number of triangles {@code v} is part of.
+	 */
+	public long triangles(int v)
+	{
+		return this.triangles.get(v);
+	}
+
+	/**
+	 * @return the number of neighbours of {@code v}, counting each once.
+	 */
+	public int neighbourCount(int v)
+	{
+		return this.degree[v];
+	}
+
+	/**
+	 * @return the fraction of pairs of neighbours of {@code v} that are
+	 *         neighbours themselves, or {@code 0} if it has fewer than two.
+	 */
+	public double localClustering(int v)
+	{
+		long d = this.degree[v];
+		return (d < 2) ? 0 : 2.0 * this.triangles.get(v) / (d * (d - 1));
+	}
+
+	/**
+	 * @return the mean of {@link #localClustering(int)} over all vertices.
+	 */
+	public double averageClustering()
+	{
+		int n = this.degree.length;
+		double sum = 0;
+		for (int v = 0; v < n; v++)
+			sum += this.localClustering(v);
+
+		return (n == 0) ? 0 : sum / n;
+	}
+
+	/**
+	 * @return three times the number of triangles over the number of paths
+	 *         of two edges, or {@code 0} if there are none.
+	 */
+	public double globalClustering()
+	{
+		long wedges = 0;
+		for (int v = 0; v < this.degree.length; v++)
+			wedges += (long) this.degree[v] * (this.degree[v] - 1) / 2;
+
+		return (wedges == 0) ? 0 : 3.0 * this.total / wedges;
+	}
+}